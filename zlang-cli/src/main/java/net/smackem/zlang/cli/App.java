@@ -1,7 +1,51 @@
 package net.smackem.zlang.cli;
 
+import java.nio.file.Path;
+import java.util.Arrays;
+
 public class App {
-    public static void main(String[] args) {
-        System.out.println("Hello, world!");
+    private static final String USAGE = """
+            usage:
+              zlang-cli daemon                   serve requests from stdin, write responses to stdout
+              zlang-cli daemon --socket <path>   serve requests on a unix domain socket
+              zlang-cli batch <source-dir> <output-dir> <module>...
+                                                 compile modules in parallel, writing <module>.zap files
+            """;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.print(USAGE);
+            System.exit(1);
+        }
+        switch (args[0]) {
+            case "daemon" -> runDaemon(args);
+            case "batch" -> runBatch(args);
+            default -> {
+                System.err.print(USAGE);
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void runBatch(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.print(USAGE);
+            System.exit(1);
+        }
+        final BatchCompiler compiler = new BatchCompiler(Path.of(args[1]), Path.of(args[2]));
+        final boolean succeeded = compiler.compile(Arrays.asList(args).subList(3, args.length), System.out);
+        System.exit(succeeded ? 0 : 2);
+    }
+
+    private static void runDaemon(String[] args) throws Exception {
+        final CompileDaemon daemon = new CompileDaemon();
+        if (args.length == 3 && args[1].equals("--socket")) {
+            daemon.listen(Path.of(args[2]));
+        } else if (args.length == 1) {
+            daemon.serve(System.in, System.out);
+        } else {
+            System.err.print(USAGE);
+            System.exit(1);
+        }
     }
 }
@@ -0,0 +1,76 @@
+package net.smackem.zlang.cli;
+
+import net.smackem.zlang.compiler.ZLCompiler;
+import net.smackem.zlang.emit.bytecode.ByteCodeWriterOptions;
+import net.smackem.zlang.lang.CompilationErrorException;
+import net.smackem.zlang.modules.DistributedSourceFileLocation;
+import net.smackem.zlang.modules.SourceDirectory;
+import net.smackem.zlang.modules.SourceFileLocation;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compiles many entry modules from a source directory in one go and writes a zap file
+ * per successfully compiled module into an output directory.
+ */
+public class BatchCompiler {
+    private static final String SOURCE_FILE_EXTENSION = "zl";
+    private static final String ZAP_FILE_EXTENSION = ".zap";
+
+    private final Path sourceDir;
+    private final Path outputDir;
+
+    public BatchCompiler(Path sourceDir, Path outputDir) {
+        this.sourceDir = sourceDir;
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * Compiles the given entry modules, reporting the result for each module to {@code out}.
+     *
+     * @return {@code true} if all modules have been compiled successfully.
+     */
+    public boolean compile(Collection<String> moduleNames, PrintStream out) throws IOException {
+        Files.createDirectories(this.outputDir);
+        final SourceFileLocation location = new DistributedSourceFileLocation(List.of(
+                ZLCompiler.stdLibLocation(),
+                new SourceDirectory(this.sourceDir, SOURCE_FILE_EXTENSION)));
+        final List<ZLCompiler.BatchResult> results = ZLCompiler.compileAll(location, moduleNames,
+                new ByteCodeWriterOptions());
+        int errorCount = 0;
+        for (final ZLCompiler.BatchResult result : results) {
+            if (result.succeeded()) {
+                final Path zapPath = this.outputDir.resolve(result.moduleName() + ZAP_FILE_EXTENSION);
+                writeZap(zapPath, result.result().firstZap());
+                out.printf("ok    %s -> %s%n", result.moduleName(), zapPath);
+                continue;
+            }
+            errorCount++;
+            out.printf("error %s%n", result.moduleName());
+            final Exception e = result.error();
+            final Collection<String> messages = e instanceof CompilationErrorException cee
+                    ? cee.messages()
+                    : List.of(e.getClass().getSimpleName() + ": " + e.getMessage());
+            for (final String message : messages) {
+                message.lines().forEach(line -> out.println("      " + line));
+            }
+        }
+        out.printf("%d compiled, %d failed%n", results.size() - errorCount, errorCount);
+        return errorCount == 0;
+    }
+
+    private static void writeZap(Path path, ByteBuffer zap) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(zap.duplicate().position(0));
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package net.smackem.zlang.cli;
+
+import net.smackem.zlang.compiler.ZLCompiler;
+import net.smackem.zlang.emit.bytecode.ByteCodeWriterOptions;
+import net.smackem.zlang.interpret.Interpreter;
+import net.smackem.zlang.lang.CompilationErrorException;
+import net.smackem.zlang.modules.DistributedSourceFileLocation;
+import net.smackem.zlang.modules.SourceDirectory;
+import net.smackem.zlang.modules.SourceFileLocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A long-running compiler process that serves compile and run requests, keeping parser caches
+ * and parsed modules warm across requests.
+ * <p>
+ *     Requests are single text lines:
+ * </p>
+ * <ul>
+ *     <li>{@code compile <source-dir> <module>}: compiles the module and responds with the zap bytes</li>
+ *     <li>{@code run <source-dir> <module>}: compiles and runs the module and responds with the values of all globals</li>
+ *     <li>{@code quit}: closes the connection</li>
+ * </ul>
+ * <p>
+ *     Modules are looked up in the bundled standard library first, then in {@code source-dir}.
+ *     Every response starts with a header line - either {@code ok <n>} or {@code error <n>}.
+ *     For {@code compile}, {@code n} is the number of zap bytes following the header, otherwise
+ *     {@code n} is the number of text lines following the header.
+ * </p>
+ * <p>
+ *     The virtual machine executing {@code run} requests writes to the standard output of the daemon,
+ *     so {@code run} requests should be sent via socket rather than stdin/stdout.
+ * </p>
+ */
+public class CompileDaemon {
+    private static final Logger log = LoggerFactory.getLogger(CompileDaemon.class);
+    private static final String SOURCE_FILE_EXTENSION = "zl";
+    private static final int HEAP_SIZE = 1024 * 1024;
+
+    /**
+     * Warms up the compiler, then serves requests read from {@code input} until {@code quit} is
+     * received or the end of the stream is reached.
+     */
+    public void serve(InputStream input, OutputStream output) throws IOException {
+        warmUp();
+        handle(input, output);
+    }
+
+    /**
+     * Warms up the compiler, then listens on the unix domain socket at the given path, serving
+     * each connection on its own thread. Does not return.
+     */
+    public void listen(Path socketPath) throws IOException {
+        warmUp();
+        Files.deleteIfExists(socketPath);
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try (final ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            log.info("listening on {}", socketPath);
+            while (true) {
+                final SocketChannel client = server.accept();
+                executor.execute(() -> {
+                    try (client) {
+                        handle(Channels.newInputStream(client), Channels.newOutputStream(client));
+                    } catch (IOException e) {
+                        log.warn("connection failed", e);
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    private static void warmUp() {
+        try {
+            ZLCompiler.warmUp();
+        } catch (IOException | CompilationErrorException e) {
+            log.warn("warm-up failed", e);
+        }
+    }
+
+    private void handle(InputStream input, OutputStream output) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        final OutputStream os = new BufferedOutputStream(output);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            final String[] tokens = line.trim().split("\\s+");
+            if (tokens.length == 1 && tokens[0].isEmpty()) {
+                continue;
+            }
+            if (Objects.equals(tokens[0], "quit")) {
+                break;
+            }
+            try {
+                if (tokens.length != 3) {
+                    throw new IllegalArgumentException("malformed request '" + line + "'");
+                }
+                switch (tokens[0]) {
+                    case "compile" -> writeBytes(os, compile(Path.of(tokens[1]), tokens[2]));
+                    case "run" -> writeLines(os, "ok", run(Path.of(tokens[1]), tokens[2]));
+                    default -> throw new IllegalArgumentException("unknown command '" + tokens[0] + "'");
+                }
+            } catch (CompilationErrorException e) {
+                writeLines(os, "error", e.messages());
+            } catch (Exception e) {
+                log.warn("request '{}' failed", line, e);
+                writeLines(os, "error", List.of(e.getClass().getSimpleName() + ": " + e.getMessage()));
+            }
+            os.flush();
+        }
+        os.flush();
+    }
+
+    private static ByteBuffer compile(Path sourceDir, String moduleName) throws Exception {
+        return ZLCompiler.compile(sourceLocation(sourceDir), moduleName, new ByteCodeWriterOptions())
+                .firstZap();
+    }
+
+    private static List<String> run(Path sourceDir, String moduleName) throws Exception {
+        final ZLCompiler.CompilationResult result = ZLCompiler.compile(sourceLocation(sourceDir), moduleName,
+                new ByteCodeWriterOptions().isMemoryImage(true).heapSize(HEAP_SIZE));
+        final Map<String, Object> globals = Interpreter.run(result.firstZap(), result.program());
+        return globals.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> entry.getKey() + " = " + printValue(entry.getValue()))
+                .toList();
+    }
+
+    private static SourceFileLocation sourceLocation(Path sourceDir) {
+        return new DistributedSourceFileLocation(List.of(
+                ZLCompiler.stdLibLocation(),
+                new SourceDirectory(sourceDir, SOURCE_FILE_EXTENSION)));
+    }
+
+    private static String printValue(Object value) {
+        if (value instanceof int[] array) {
+            return Arrays.toString(array);
+        }
+        if (value instanceof byte[] array) {
+            return Arrays.toString(array);
+        }
+        if (value instanceof double[] array) {
+            return Arrays.toString(array);
+        }
+        if (value instanceof long[] array) {
+            return Arrays.toString(array);
+        }
+        return String.valueOf(value);
+    }
+
+    private static void writeBytes(OutputStream os, ByteBuffer zap) throws IOException {
+        final byte[] bytes = new byte[zap.limit()];
+        zap.get(0, bytes);
+        os.write(("ok " + bytes.length + "\n").getBytes(StandardCharsets.UTF_8));
+        os.write(bytes);
+    }
+
+    private static void writeLines(OutputStream os, String status, Collection<String> messages) throws IOException {
+        final List<String> lines = messages.stream()
+                .flatMap(String::lines)
+                .toList();
+        final StringBuilder sb = new StringBuilder()
+                .append(status).append(' ').append(lines.size()).append('\n');
+        for (final String line : lines) {
+            sb.append(line).append('\n');
+        }
+        os.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
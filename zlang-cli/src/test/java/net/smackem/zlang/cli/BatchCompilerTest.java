@@ -0,0 +1,68 @@
+package net.smackem.zlang.cli;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchCompilerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void failingModuleDoesNotStopOtherModules() throws Exception {
+        final Path sourceDir = folder.newFolder("src").toPath();
+        final Path outputDir = folder.getRoot().toPath().resolve("out");
+        Files.writeString(sourceDir.resolve("shared.zl"), """
+                module shared
+                fn twice(n: int) -> int {
+                    return n * 2
+                }
+                """);
+        Files.writeString(sourceDir.resolve("first.zl"), """
+                module first uses shared
+                var result: int
+                fn main() {
+                    result = twice(1)
+                }
+                """);
+        Files.writeString(sourceDir.resolve("broken.zl"), """
+                module broken uses shared
+                var result: int
+                fn main() {
+                    result = thrice(1)
+                }
+                """);
+        Files.writeString(sourceDir.resolve("second.zl"), """
+                module second uses shared
+                var result: int
+                fn main() {
+                    result = twice(2)
+                }
+                """);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        final boolean succeeded = new BatchCompiler(sourceDir, outputDir).compile(
+                List.of("first", "broken", "second"),
+                new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        assertThat(succeeded).isFalse();
+        assertThat(outputDir.resolve("first.zap")).isRegularFile();
+        assertThat(outputDir.resolve("second.zap")).isRegularFile();
+        assertThat(outputDir.resolve("broken.zap")).doesNotExist();
+        final List<String> lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).filteredOn(line -> line.startsWith("error"))
+                .containsExactly("error broken");
+        assertThat(lines).filteredOn(line -> line.startsWith("ok"))
+                .hasSize(2);
+        assertThat(lines).last().isEqualTo("2 compiled, 1 failed");
+    }
+}
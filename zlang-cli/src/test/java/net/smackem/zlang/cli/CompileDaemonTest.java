@@ -0,0 +1,127 @@
+package net.smackem.zlang.cli;
+
+import net.smackem.zlang.compiler.ZLCompiler;
+import net.smackem.zlang.emit.bytecode.ByteCodeWriterOptions;
+import net.smackem.zlang.modules.SourceDirectory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompileDaemonTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path sourceDir;
+
+    @Before
+    public void setUp() throws IOException {
+        this.sourceDir = folder.newFolder("src").toPath();
+        Files.writeString(this.sourceDir.resolve("app.zl"), """
+                module app uses dep
+                var result: int
+                var name: string
+                fn main() {
+                    result = square(12)
+                    name = "app"
+                }
+                """);
+        Files.writeString(this.sourceDir.resolve("dep.zl"), """
+                module dep
+                fn square(n: int) -> int {
+                    return n * n
+                }
+                """);
+        Files.writeString(this.sourceDir.resolve("broken.zl"), """
+                fn main() {
+                    var x: int = undefined
+                }
+                """);
+    }
+
+    @Test
+    public void compileRespondsWithZap() throws Exception {
+        final DataInputStream responses = serve("compile " + this.sourceDir + " app");
+
+        final byte[] zap = readZap(responses);
+        final ByteBuffer expected = ZLCompiler.compile(new SourceDirectory(this.sourceDir, "zl"), "app",
+                new ByteCodeWriterOptions()).firstZap();
+        final byte[] expectedBytes = new byte[expected.limit()];
+        expected.get(0, expectedBytes);
+        assertThat(zap).isEqualTo(expectedBytes);
+        assertThat(responses.read()).isEqualTo(-1);
+    }
+
+    @Test
+    public void runRespondsWithGlobals() throws Exception {
+        final DataInputStream responses = serve("run " + this.sourceDir + " app");
+
+        assertThat(readLines(responses, "ok")).containsExactly("name = app", "result = 144");
+    }
+
+    @Test
+    public void malformedRequestsDoNotStopDaemon() throws Exception {
+        final DataInputStream responses = serve(
+                "compile " + this.sourceDir,
+                "link " + this.sourceDir + " app",
+                "run " + this.sourceDir + " broken",
+                "run " + this.sourceDir + " missing",
+                "run " + this.sourceDir + " app",
+                "quit",
+                "run " + this.sourceDir + " app");
+
+        assertThat(readLines(responses, "error")).hasSize(1).allMatch(line -> line.contains("malformed request"));
+        assertThat(readLines(responses, "error")).hasSize(1).allMatch(line -> line.contains("unknown command 'link'"));
+        assertThat(readLines(responses, "error")).isNotEmpty();
+        assertThat(readLines(responses, "error")).hasSize(1).allMatch(line -> line.contains("missing"));
+        assertThat(readLines(responses, "ok")).contains("result = 144");
+        // no response after quit
+        assertThat(responses.read()).isEqualTo(-1);
+    }
+
+    private static DataInputStream serve(String... requests) throws IOException {
+        final String input = String.join("\n", requests) + "\n";
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new CompileDaemon().serve(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+        return new DataInputStream(new ByteArrayInputStream(output.toByteArray()));
+    }
+
+    private static byte[] readZap(DataInputStream responses) throws IOException {
+        final String[] header = readLine(responses).split(" ");
+        assertThat(header[0]).isEqualTo("ok");
+        final byte[] zap = new byte[Integer.parseInt(header[1])];
+        responses.readFully(zap);
+        return zap;
+    }
+
+    private static List<String> readLines(DataInputStream responses, String expectedStatus) throws IOException {
+        final String[] header = readLine(responses).split(" ");
+        assertThat(header[0]).isEqualTo(expectedStatus);
+        final int count = Integer.parseInt(header[1]);
+        final List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lines.add(readLine(responses));
+        }
+        return lines;
+    }
+
+    private static String readLine(DataInputStream responses) throws IOException {
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = responses.read()) != '\n') {
+            assertThat(b).isNotEqualTo(-1);
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+}
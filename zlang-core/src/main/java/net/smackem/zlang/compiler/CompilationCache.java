@@ -0,0 +1,147 @@
+package net.smackem.zlang.compiler;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import net.smackem.zlang.emit.bytecode.ByteCode;
+import net.smackem.zlang.emit.bytecode.ByteCodeWriterOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A persistent cache of compiled zaps, stored as files in a directory.
+ * <p>
+ *     Cache keys combine the compiler version, the source hashes of all modules that
+ *     make up a program and the {@link ByteCodeWriterOptions}. Entries are never invalidated
+ *     explicitly - a change of any of these yields a new key.
+ * </p>
+ * <p>
+ *     Each entry stores a zap together with the serialized {@link net.smackem.zlang.symbols.GlobalsMetadata}
+ *     of the program, which is needed to read the global segment of the zap.
+ *     For memory images, only the header, code and const segments are stored, since
+ *     all other segments are zeroed memory.
+ * </p>
+ */
+public class CompilationCache {
+    private static final Logger log = LoggerFactory.getLogger(CompilationCache.class);
+    private static final String FILE_EXTENSION = ".zap";
+
+    private static final int ENTRY_HEADER_SIZE = 9;
+
+    private final Path directory;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Initializes a new instance of {@link CompilationCache}.
+     *
+     * @param directory
+     *      The directory to store cached zaps in. Is created if it does not exist.
+     */
+    public CompilationCache(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * @return the number of lookups that returned a cached zap.
+     */
+    public long hitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * @return the number of lookups that did not find a cached zap.
+     */
+    public long missCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * Deletes all cached zaps.
+     */
+    public void clear() throws IOException {
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*" + FILE_EXTENSION)) {
+            for (final Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * A cached zap and the serialized metadata of the program it has been compiled from.
+     */
+    static record Entry(ByteBuffer zap, byte[] metadata) { }
+
+    String key(Map<String, HashCode> sourceHashes, ByteCodeWriterOptions options) {
+        final Hasher hasher = Hashing.sha256().newHasher()
+                .putString(ZLCompiler.VERSION, StandardCharsets.UTF_8)
+                .putByte(ByteCode.MAJOR_VERSION)
+                .putByte(ByteCode.MINOR_VERSION);
+        for (final var entry : sourceHashes.entrySet()) {
+            hasher.putString(entry.getKey(), StandardCharsets.UTF_8)
+                    .putBytes(entry.getValue().asBytes());
+        }
+        return hasher.putBoolean(options.isMemoryImage())
+                .putInt(options.heapSize())
+                .putBoolean(options.hasHeapSizeLimit())
+                .putInt(options.maxStackDepth())
+                .hash()
+                .toString();
+    }
+
+    Entry get(String key) throws IOException {
+        final Path file = this.directory.resolve(key + FILE_EXTENSION);
+        final byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            this.missCount.incrementAndGet();
+            return null;
+        }
+        this.hitCount.incrementAndGet();
+        final ByteBuffer stored = ByteBuffer.wrap(bytes).order(ByteOrder.nativeOrder());
+        final boolean memoryImage = stored.get(0) != 0;
+        final int capacity = stored.getInt(1);
+        final int length = stored.getInt(5);
+        final ByteBuffer zap = memoryImage
+                ? ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder())
+                : ByteBuffer.allocate(capacity).order(ByteOrder.nativeOrder());
+        zap.put(0, bytes, ENTRY_HEADER_SIZE, length);
+        final byte[] metadata = new byte[bytes.length - ENTRY_HEADER_SIZE - length];
+        stored.get(ENTRY_HEADER_SIZE + length, metadata);
+        return new Entry(zap, metadata);
+    }
+
+    void put(String key, Entry entry) throws IOException {
+        final ByteBuffer zap = entry.zap();
+        final int codeSize = zap.getInt(4);
+        final int constSize = zap.getInt(8);
+        final int length = ByteCode.HEADER_SIZE + codeSize + constSize;
+        final ByteBuffer stored = ByteBuffer.allocate(ENTRY_HEADER_SIZE + length + entry.metadata().length)
+                .order(ByteOrder.nativeOrder());
+        stored.put(0, (byte) (zap.isDirect() ? 1 : 0));
+        stored.putInt(1, zap.capacity());
+        stored.putInt(5, length);
+        stored.put(ENTRY_HEADER_SIZE, zap, 0, length);
+        stored.put(ENTRY_HEADER_SIZE + length, entry.metadata());
+        // write to a temporary file first, so that concurrent readers never see partial entries
+        final Path file = this.directory.resolve(key + FILE_EXTENSION);
+        final Path tempFile = Files.createTempFile(this.directory, key, ".tmp");
+        try {
+            Files.write(tempFile, stored.array());
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        log.info("cached zap {} ({} bytes)", key, length);
+    }
+}
@@ -1,23 +1,39 @@
 package net.smackem.zlang.compiler;
 
 import com.google.common.base.Joiner;
+import com.google.common.hash.HashCode;
 import net.smackem.zlang.emit.bytecode.ByteCodeWriter;
 import net.smackem.zlang.emit.bytecode.ByteCodeWriterOptions;
 import net.smackem.zlang.emit.ir.Emitter;
 import net.smackem.zlang.emit.ir.Program;
 import net.smackem.zlang.lang.CompilationErrorException;
+import net.smackem.zlang.modules.ModuleLoader;
 import net.smackem.zlang.modules.ParsedModule;
 import net.smackem.zlang.modules.SourceFileLocation;
 import net.smackem.zlang.symbols.GlobalScope;
+import net.smackem.zlang.symbols.GlobalsMetadata;
 import net.smackem.zlang.symbols.ProgramStructure;
 import net.smackem.zlang.symbols.Symbol;
 import net.smackem.zlang.symbols.SymbolExtractor;
 import org.antlr.v4.runtime.ParserRuleContext;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 public class ZLCompiler {
+    /**
+     * The version of the compiler. Must be changed whenever the generated code changes,
+     * since it is part of the {@link CompilationCache} keys.
+     */
+    public static final String VERSION = "0.1.13";
+
+    private static final String STD_LIB_MODULE_NAME = "std";
+    private static final SourceFileLocation STD_LIB_LOCATION = moduleName ->
+            ZLCompiler.class.getResourceAsStream("/lib/" + moduleName + ".zl");
+
     private ZLCompiler() { throw new AssertionError("no instance"); }
 
     public static record CompilationResult(Program program, List<ByteBuffer> zaps) {
@@ -26,14 +42,72 @@ public class ZLCompiler {
         }
     }
 
+    /**
+     * Parses the standard library modules bundled with the compiler to warm up the shared
+     * parser caches (see {@link net.smackem.zlang.lang.ParserCache} and
+     * {@link net.smackem.zlang.modules.SyntaxTreeCache}). Call once at startup to
+     * speed up the first compilation.
+     */
+    public static void warmUp() throws IOException, CompilationErrorException {
+        ParsedModule.parse(STD_LIB_MODULE_NAME, STD_LIB_LOCATION);
+    }
+
+    /**
+     * @return a {@link SourceFileLocation} that provides the standard library modules bundled
+     *      with the compiler. Returns {@code null} for all other modules.
+     */
+    public static SourceFileLocation stdLibLocation() {
+        return STD_LIB_LOCATION;
+    }
+
+    /**
+     * The result of compiling one entry module with {@link #compileAll}: either {@link #result()}
+     * or {@link #error()} is set.
+     */
+    public static record BatchResult(String moduleName, CompilationResult result, Exception error) {
+        public boolean succeeded() {
+            return error == null;
+        }
+    }
+
     public static CompilationResult compile(SourceFileLocation location, String moduleName, ByteCodeWriterOptions... options) throws Exception {
-        final ParsedModule module = ParsedModule.parse(moduleName, location);
-        final Collection<ParsedModule> modules = module.flatten();
-        final Collection<String> errors = new ArrayList<>();
-        final ProgramStructure ps = SymbolExtractor.extractSymbols(modules, new GlobalScope(), errors);
-        if (errors.isEmpty() == false) {
-            throw new CompilationErrorException(Joiner.on(System.lineSeparator()).join(errors));
+        return compile(ParsedModule.parse(moduleName, location), options);
+    }
+
+    /**
+     * Compiles many independent entry modules. All modules are parsed only once, even if shared
+     * by multiple entry modules. The remaining compilation steps run in parallel for all programs
+     * on the common {@link ForkJoinPool}.
+     *
+     * @return one {@link BatchResult} per entry module, in the order of {@code moduleNames}.
+     */
+    public static List<BatchResult> compileAll(SourceFileLocation location, Collection<String> moduleNames, ByteCodeWriterOptions... options) {
+        final ModuleLoader loader = new ModuleLoader(location);
+        final List<CompletableFuture<BatchResult>> futures = new ArrayList<>();
+        for (final String moduleName : moduleNames) {
+            final ParsedModule module;
+            try {
+                module = loader.load(moduleName);
+            } catch (Exception e) {
+                futures.add(CompletableFuture.completedFuture(new BatchResult(moduleName, null, e)));
+                continue;
+            }
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return new BatchResult(moduleName, compile(module, options), null);
+                } catch (Exception e) {
+                    return new BatchResult(moduleName, null, e);
+                }
+            }, ForkJoinPool.commonPool()));
         }
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .toList();
+    }
+
+    private static CompilationResult compile(ParsedModule module, ByteCodeWriterOptions... options) throws Exception {
+        final Collection<ParsedModule> modules = module.flatten();
+        final ProgramStructure ps = extractSymbols(modules);
         final Program program = Emitter.emit(ps, modules);
         final ByteCodeWriter writer = new ByteCodeWriter();
         final List<ByteBuffer> zaps = new ArrayList<>();
@@ -44,4 +118,44 @@ public class ZLCompiler {
         }
         return new CompilationResult(program, Collections.unmodifiableList(zaps));
     }
+
+    /**
+     * Same as {@link #compile(SourceFileLocation, String, ByteCodeWriterOptions...)}, but looks up
+     * the zaps in the given {@link CompilationCache} first. The cache keys are computed from the module
+     * sources without parsing them (see {@link ModuleLoader#scanSourceHashes}). If all zaps are cached,
+     * the modules are neither parsed nor compiled and the returned {@link CompilationResult#program()}
+     * only describes the globals of the program, as stored in the cache (see {@link Program#ofGlobals}).
+     */
+    public static CompilationResult compile(CompilationCache cache, SourceFileLocation location, String moduleName, ByteCodeWriterOptions... options) throws Exception {
+        final Map<String, HashCode> sourceHashes = ModuleLoader.scanSourceHashes(location, moduleName);
+        final List<String> keys = new ArrayList<>();
+        final List<CompilationCache.Entry> entries = new ArrayList<>();
+        for (final ByteCodeWriterOptions o : options) {
+            final String key = cache.key(sourceHashes, o);
+            keys.add(key);
+            entries.add(cache.get(key));
+        }
+        if (entries.isEmpty() == false && entries.contains(null) == false) {
+            final GlobalsMetadata metadata = GlobalsMetadata.deserialize(entries.get(0).metadata());
+            return new CompilationResult(Program.ofGlobals(metadata.globals(), metadata.types()),
+                    entries.stream().map(CompilationCache.Entry::zap).toList());
+        }
+        final CompilationResult result = compile(ParsedModule.parse(moduleName, location), options);
+        final byte[] metadata = GlobalsMetadata.of(result.program().globals()).serialize();
+        for (int i = 0; i < options.length; i++) {
+            if (entries.get(i) == null) {
+                cache.put(keys.get(i), new CompilationCache.Entry(result.zaps().get(i), metadata));
+            }
+        }
+        return result;
+    }
+
+    private static ProgramStructure extractSymbols(Collection<ParsedModule> modules) throws CompilationErrorException {
+        final Collection<String> errors = new ArrayList<>();
+        final ProgramStructure ps = SymbolExtractor.extractSymbols(modules, new GlobalScope(), errors);
+        if (errors.isEmpty() == false) {
+            throw new CompilationErrorException(Joiner.on(System.lineSeparator()).join(errors));
+        }
+        return ps;
+    }
 }
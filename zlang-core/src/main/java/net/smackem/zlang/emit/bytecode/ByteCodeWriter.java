@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Collection;
+import java.util.List;
 
 public class ByteCodeWriter implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(ByteCodeWriter.class);
@@ -121,6 +122,8 @@ public class ByteCodeWriter implements AutoCloseable {
     }
 
     private void renderTypes(Collection<Type> types) throws IOException {
+        ConstSegmentWriter.assignItableSlots(types);
+        this.constSegment.assignTypeIds(types);
         // write interfaces first
         for (final Type type : types) {
             if (type instanceof InterfaceSymbol ifs) {
@@ -168,6 +171,19 @@ public class ByteCodeWriter implements AutoCloseable {
                 switch (sourceInstr.opCode()) {
                     case Br -> buf.putInt(offset + 1, label.target().address());
                     case Br_zero -> buf.putInt(offset + 2, label.target().address());
+                    case Brf_eq_i32, Brf_eq_f64, Brf_ne_i32, Brf_ne_f64,
+                            Brf_gt_i32, Brf_gt_f64, Brf_ge_i32, Brf_ge_f64,
+                            Brf_lt_i32, Brf_lt_f64, Brf_le_i32, Brf_le_f64 ->
+                        buf.putInt(offset + 3, label.target().address());
+                    case Loop_lt_i32 -> buf.putInt(offset + 4, label.target().address());
+                    case BrTable -> {
+                        final List<Label> table = sourceInstr.tableLabelArgs();
+                        for (int index = 0; index < table.size(); index++) {
+                            if (table.get(index) == label) {
+                                buf.putInt(offset + 6 + 4 * index, label.target().address());
+                            }
+                        }
+                    }
                     default -> {
                         log.error("invalid opcode for branch source instruction: {}", sourceInstr);
                         assert false;
@@ -253,6 +269,37 @@ public class ByteCodeWriter implements AutoCloseable {
                 writer.writeAddr(0); // needs fixup
             }
             case Br -> writer.writeAddr(0); // needs fixup
+            case Brf_eq_i32, Brf_eq_f64, Brf_ne_i32, Brf_ne_f64,
+                    Brf_gt_i32, Brf_gt_f64, Brf_ge_i32, Brf_ge_f64,
+                    Brf_lt_i32, Brf_lt_f64, Brf_le_i32, Brf_le_f64 -> {
+                assert instr.labelArg() != null;
+                writer.writeByte(instr.registerArg(0).number());
+                writer.writeByte(instr.registerArg(1).number());
+                writer.writeAddr(0); // needs fixup
+            }
+            case Loop_lt_i32 -> {
+                assert instr.labelArg() != null;
+                writer.writeByte(instr.registerArg(0).number());
+                writer.writeByte(instr.registerArg(1).number());
+                writer.writeByte(instr.registerArg(2).number());
+                writer.writeAddr(0); // needs fixup
+            }
+            case BrTable -> {
+                writer.writeByte(instr.registerArg(0).number());
+                writer.writeInt32(instr.tableLabelArgs().size());
+                for (int index = 0; index < instr.tableLabelArgs().size(); index++) {
+                    writer.writeAddr(0); // needs fixup
+                }
+            }
+            case Addi_i32 -> {
+                writer.writeByte(instr.registerArg(0).number());
+                writer.writeByte(instr.registerArg(1).number());
+                writer.writeInt32((int) instr.intArg());
+            }
+            case TailCall -> {
+                writer.writeByte(instr.registerArg(1).number());
+                writer.writeAddr(instr.symbolArg().address());
+            }
             case Call, CallVirt, Invoke, TypeChk -> {
                 writer.writeByte(instr.registerArg(0).number());
                 writer.writeByte(instr.registerArg(1).number());
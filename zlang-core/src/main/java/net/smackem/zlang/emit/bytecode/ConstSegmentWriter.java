@@ -12,7 +12,8 @@ import java.util.*;
 
 class ConstSegmentWriter extends NativeValueWriter {
 
-    private static final int typeMetaHeaderSize = 16;
+    private static final int typeMetaHeaderSize = ByteCode.TYPE_META_HEADER_SIZE;
+    private final Map<Type, Integer> typeIds = new HashMap<>();
 
     ConstSegmentWriter() {
         super(new ByteArrayOutputStream());
@@ -24,19 +25,78 @@ class ConstSegmentWriter extends NativeValueWriter {
         }
     }
 
+    /**
+     * Assigns dense ids to all types in {@code types}, starting with the interfaces, so that the
+     * type sets of all types stay small.
+     */
+    public void assignTypeIds(Collection<Type> types) {
+        this.typeIds.clear();
+        for (final Type type : types) {
+            if (type instanceof InterfaceSymbol) {
+                this.typeIds.put(type, this.typeIds.size());
+            }
+        }
+        for (final Type type : types) {
+            if (type instanceof StructSymbol || type instanceof ListType || type instanceof UnionSymbol) {
+                this.typeIds.put(type, this.typeIds.size());
+            }
+        }
+    }
+
+    /**
+     * Assigns itable slots to the methods of all interfaces in {@code types}. The methods of an
+     * interface get consecutive slots. Interfaces implemented by the same type never share slots,
+     * otherwise slots are reused to keep itables short.
+     */
+    public static void assignItableSlots(Collection<Type> types) {
+        final Map<AggregateTypeSymbol, BitSet> occupiedSlots = new HashMap<>();
+        for (final Type type : types) {
+            if (type instanceof InterfaceSymbol == false) {
+                continue;
+            }
+            final List<InterfaceMethodSymbol> methods = interfaceMethods((InterfaceSymbol) type);
+            final List<BitSet> implementors = types.stream()
+                    .filter(t -> t instanceof AggregateTypeSymbol aggregate && aggregate.implementedInterfaces().contains(type))
+                    .map(t -> occupiedSlots.computeIfAbsent((AggregateTypeSymbol) t, ignored -> new BitSet()))
+                    .toList();
+            int firstSlot = 0;
+            while (isFree(implementors, firstSlot, methods.size()) == false) {
+                firstSlot++;
+            }
+            for (final BitSet occupied : implementors) {
+                occupied.set(firstSlot, firstSlot + methods.size());
+            }
+            int slot = firstSlot;
+            for (final InterfaceMethodSymbol method : methods) {
+                method.setItableSlot(slot++);
+            }
+        }
+    }
+
+    private static boolean isFree(Collection<BitSet> implementors, int firstSlot, int slotCount) {
+        return implementors.stream().allMatch(occupied -> occupied.get(firstSlot, firstSlot + slotCount).isEmpty());
+    }
+
+    private static List<InterfaceMethodSymbol> interfaceMethods(InterfaceSymbol symbol) {
+        return symbol.symbols().stream()
+                .filter(s -> s instanceof InterfaceMethodSymbol)
+                .map(s -> (InterfaceMethodSymbol) s)
+                .toList();
+    }
+
     // typedef struct virtual_function_meta {
     //     addr_t declaring_type;
+    //     uint32_t itable_slot;
     // } VirtualFunctionMeta;
 
     public void writeType(InterfaceSymbol symbol) throws IOException {
         writeType(symbol, List.of(), Map.of(), List.of());
 
         // write interface methods
-        for (final Symbol methodSymbol : symbol.symbols()) {
-            if (methodSymbol instanceof InterfaceMethodSymbol ifcMethod) {
-                ifcMethod.setAddress(bytesWritten());
-                writeInt32(symbol.address());
-            }
+        for (final InterfaceMethodSymbol ifcMethod : interfaceMethods(symbol)) {
+            ifcMethod.setAddress(bytesWritten());
+            writeInt32(symbol.address());
+            writeInt32(ifcMethod.itableSlot());
         }
     }
 
@@ -62,8 +122,10 @@ class ConstSegmentWriter extends NativeValueWriter {
     // typedef struct type_meta {
     //     addr_t name_offset;
     //     addr_t implemented_interfaces_offset;
-    //     addr_t vtable_offset;
+    //     addr_t itable_offset;
     //     addr_t field_types_offset;
+    //     uint32_t type_id;
+    //     addr_t type_set_offset;
     //     byte_t data[4];
     // } TypeMeta;
 
@@ -73,12 +135,15 @@ class ConstSegmentWriter extends NativeValueWriter {
                            Collection<Symbol> fields) throws IOException {
         symbol.setAddress(bytesWritten());
         final ChunkWriter chunk = new ChunkWriter();
-        final int nameOffset, interfacesOffset, vtableOffset, fieldsOffset;
+        final int nameOffset, interfacesOffset, itableOffset, typeSetOffset, fieldsOffset;
+        final int typeId = this.typeIds.get((Type) symbol);
         try (chunk) {
             chunk.writeAddr(0); // name_offset
             chunk.writeAddr(0); // implemented_interfaces_offset
-            chunk.writeAddr(0); // vtable_offset
+            chunk.writeAddr(0); // itable_offset
             chunk.writeAddr(0); // fields_offset
+            chunk.writeInt32(typeId);
+            chunk.writeAddr(0); // type_set_offset
             assert chunk.bytesWritten() == typeMetaHeaderSize;
             chunk.setMark();
             nameOffset = chunk.bytesWrittenSinceMark();
@@ -88,14 +153,26 @@ class ConstSegmentWriter extends NativeValueWriter {
                 chunk.writeAddr(((InterfaceSymbol) ifc).address());
             }
             chunk.writeAddr(0); // zero-terminate name
-            vtableOffset = chunk.bytesWrittenSinceMark();
-            for (final var vtableEntry : vtable.entrySet()) {
-                assert vtableEntry.getKey().address() != 0;
-                chunk.writeAddr(vtableEntry.getKey().address());
+            itableOffset = chunk.bytesWrittenSinceMark();
+            final int slotCount = vtable.keySet().stream()
+                    .mapToInt(ifcMethod -> ifcMethod.itableSlot() + 1)
+                    .max()
+                    .orElse(0);
+            chunk.writeInt32(slotCount);
+            for (int slot = 0; slot < slotCount; slot++) {
                 chunk.writeAddr(0); // method addresses need to be fixed up later
             }
-            chunk.writeAddr(0); // zero-terminate vtable tuple
-            chunk.writeAddr(0);
+            typeSetOffset = chunk.bytesWrittenSinceMark();
+            final BitSet typeSet = new BitSet();
+            typeSet.set(typeId);
+            for (final Type ifc : implementedInterfaces) {
+                typeSet.set(this.typeIds.get(ifc));
+            }
+            final int[] typeSetWords = toWords(typeSet);
+            chunk.writeInt32(typeSetWords.length);
+            for (final int word : typeSetWords) {
+                chunk.writeInt32(word);
+            }
             fieldsOffset = chunk.bytesWrittenSinceMark();
             for (final Symbol field : fields) {
                 if (field instanceof FieldSymbol) {
@@ -112,11 +189,21 @@ class ConstSegmentWriter extends NativeValueWriter {
         byteBuffer.asIntBuffer()
                 .put(0, nameOffset)
                 .put(1, interfacesOffset)
-                .put(2, vtableOffset)
-                .put(3, fieldsOffset);
+                .put(2, itableOffset)
+                .put(3, fieldsOffset)
+                .put(5, typeSetOffset);
         writeChunk(byteBuffer);
     }
 
+    private static int[] toWords(BitSet bits) {
+        final long[] longs = bits.toLongArray();
+        final int[] words = new int[(bits.length() + 31) / 32];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = (int) (longs[i / 2] >>> (i % 2 * 32));
+        }
+        return words;
+    }
+
     // typedef struct function_meta {
     //     addr_t pc;
     //     int local_count;
@@ -129,7 +216,7 @@ class ConstSegmentWriter extends NativeValueWriter {
         symbol.setAddress(bytesWritten());
         writeAddr(0); // pc - fixup later
         writeInt32(symbol.localCount());
-        writeInt32(symbol instanceof MethodSymbol ? symbol.symbols().size() + 1 : symbol.symbols().size()); // + 1 for self
+        writeInt32(symbol.symbols().size()); // parameters of methods include self
         writeByte(symbol.type() != null ? (byte) symbol.type().registerType().id().number() : 0);
         writeString(symbol.name());
     }
@@ -139,19 +226,19 @@ class ConstSegmentWriter extends NativeValueWriter {
         final byte[] bytes = ((ByteArrayOutputStream) outputStream()).toByteArray();
         final ByteBuffer buf = ByteBuffer.wrap(bytes).order(ByteOrder.nativeOrder());
 
-        // fixup aggregate type vtables
+        // fixup aggregate type itables
         for (final Type type : types) {
             if (type instanceof AggregateTypeSymbol == false) {
                 continue;
             }
             final AggregateTypeSymbol aggregate = (AggregateTypeSymbol) type;
             final IntBuffer typeMetaHeader = buf.slice(aggregate.address(), typeMetaHeaderSize).order(ByteOrder.nativeOrder()).asIntBuffer();
-            int vtableEntryOffset = aggregate.address() + typeMetaHeaderSize + typeMetaHeader.get(2);
+            final int itableOffset = aggregate.address() + typeMetaHeaderSize + typeMetaHeader.get(2);
             for (final var vtableEntry : aggregate.buildVirtualTable().entrySet()) {
-                assert buf.getInt(vtableEntryOffset) == vtableEntry.getKey().address();
+                final int slot = vtableEntry.getKey().itableSlot();
+                assert slot < buf.getInt(itableOffset);
                 assert vtableEntry.getValue().address() != 0;
-                buf.putInt(vtableEntryOffset + 4, vtableEntry.getValue().address());
-                vtableEntryOffset += 8;
+                buf.putInt(itableOffset + 4 + slot * 4, vtableEntry.getValue().address());
             }
         }
 
@@ -0,0 +1,160 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.symbols.BuiltInFunction;
+import net.smackem.zlang.symbols.FunctionSymbol;
+import net.smackem.zlang.symbols.MethodSymbol;
+import net.smackem.zlang.symbols.Type;
+
+import java.util.*;
+
+/**
+ * Removes {@link OpCode#Collect}s that cannot find any garbage.
+ * <p>
+ *     Heap entries become garbage only when they are allocated or lose a reference. The instructions
+ *     that can leave unreferenced heap entries behind are allocations, {@link OpCode#RemoveRef},
+ *     the built-in functions that allocate and calls of functions that return a reference
+ *     (the callee collects before its result is referenced by the caller).
+ * </p>
+ * <ul>
+ *     <li>A {@code Collect} on a loop back edge is kept only if the loop contains such an instruction,
+ *          so loops that never allocate never collect.</li>
+ *     <li>Any other {@code Collect} is kept only if such an instruction may have been executed since
+ *          the last {@code Collect}. Since a {@code Collect} also frees the garbage left
+ *          behind by the callers, a function starts out dirty if any of its call sites is dirty.</li>
+ * </ul>
+ */
+public final class CollectElisionPass implements OptimizationPass {
+
+    private static final Set<Integer> nonAllocatingBuiltIns = Set.of(
+            BuiltInFunction.ARRAY_SIZE.address(),
+            BuiltInFunction.LIST_SIZE.address(),
+            BuiltInFunction.LIST_CAPACITY.address(),
+            BuiltInFunction.LIST_REMOVE.address(),
+            BuiltInFunction.PRINT.address(),
+            BuiltInFunction.STRING_LENGTH.address());
+
+    @Override
+    public String name() {
+        return "collect-elision";
+    }
+
+    @Override
+    public void run(Program program) {
+        final FlowGraph graph = new FlowGraph(program.instructions());
+        final int size = graph.size();
+        final int[] components = graph.stronglyConnectedComponents();
+        final int[] componentSizes = new int[size];
+        final BitSet producingComponents = new BitSet(size);
+        final BitSet producers = new BitSet(size);
+        for (int index = 0; index < size; index++) {
+            componentSizes[components[index]]++;
+            if (producesGarbage(graph.instruction(index))) {
+                producers.set(index);
+                producingComponents.set(components[index]);
+            }
+        }
+
+        // Collects in loops: keep them if the loop produces garbage
+        final Set<Instruction> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        final BitSet cleaningCollects = new BitSet(size);
+        final List<Integer> otherCollects = new ArrayList<>();
+        for (int index = 0; index < size; index++) {
+            final Instruction instr = graph.instruction(index);
+            if (instr.opCode() != OpCode.Collect) {
+                continue;
+            }
+            if (componentSizes[components[index]] == 1) {
+                otherCollects.add(index);
+                cleaningCollects.set(index);
+            } else if (producingComponents.get(components[index])) {
+                cleaningCollects.set(index);
+            } else {
+                removed.add(instr);
+            }
+        }
+
+        // other Collects: keep them if garbage may have been produced on any path leading to them
+        final BitSet dirty = dirtyBefore(graph, program.functionEntries(), producers, cleaningCollects);
+        for (final int index : otherCollects) {
+            if (dirty.get(index) == false) {
+                removed.add(graph.instruction(index));
+            }
+        }
+        program.removeInstructions(removed);
+    }
+
+    /**
+     * Forward data flow analysis: an instruction is dirty if a path leads to it through a producer
+     * of garbage that is not followed by a {@code Collect}. Calls propagate dirtiness to the entry
+     * of the called functions.
+     * <p>
+     *     {@code collects} are the {@code Collect}s that leave a clean heap: the loop {@code Collect}s
+     *     that are kept and all other {@code Collect}s, which are either kept or only reached with
+     *     a clean heap.
+     * </p>
+     */
+    private static BitSet dirtyBefore(FlowGraph graph, Map<FunctionSymbol, Instruction> entries,
+                                      BitSet producers, BitSet collects) {
+        final int size = graph.size();
+        final BitSet dirtyIn = new BitSet(size);
+        final Deque<Integer> worklist = new ArrayDeque<>();
+        for (int index = producers.nextSetBit(0); index >= 0; index = producers.nextSetBit(index + 1)) {
+            worklist.push(index);
+        }
+        while (worklist.isEmpty() == false) {
+            final int index = worklist.pop();
+            if (dirtyIn.get(index)) {
+                for (final Instruction entry : callees(graph.instruction(index), entries)) {
+                    final int entryIndex = graph.indexOf(entry);
+                    if (dirtyIn.get(entryIndex) == false) {
+                        dirtyIn.set(entryIndex);
+                        worklist.push(entryIndex);
+                    }
+                }
+            }
+            final boolean dirtyOut = producers.get(index)
+                    || (dirtyIn.get(index) && collects.get(index) == false);
+            if (dirtyOut == false) {
+                continue;
+            }
+            for (final int successor : graph.successors(index)) {
+                if (dirtyIn.get(successor) == false) {
+                    dirtyIn.set(successor);
+                    worklist.push(successor);
+                }
+            }
+        }
+        return dirtyIn;
+    }
+
+    private static Collection<Instruction> callees(Instruction instr, Map<FunctionSymbol, Instruction> entries) {
+        return switch (instr.opCode()) {
+            case Call, TailCall -> {
+                final Instruction entry = entries.get((FunctionSymbol) instr.symbolArg());
+                yield entry != null ? List.of(entry) : List.of();
+            }
+            // any implementation of the interface method may be called
+            case CallVirt -> entries.entrySet().stream()
+                    .filter(e -> e.getKey() instanceof MethodSymbol
+                            && e.getKey().name().equals(instr.symbolArg().name()))
+                    .map(Map.Entry::getValue)
+                    .toList();
+            default -> List.of();
+        };
+    }
+
+    private static boolean producesGarbage(Instruction instr) {
+        return switch (instr.opCode()) {
+            case Ldc_str, Add_str, NewObj, NewStr, NewArr_i32, NewArr_f64, NewArr_u8, NewArr_ref, NewArr_ptr,
+                    RemoveRef -> true;
+            case Invoke -> nonAllocatingBuiltIns.contains(((FunctionSymbol) instr.symbolArg()).address()) == false;
+            case Call, CallVirt -> returnsReference((FunctionSymbol) instr.symbolArg());
+            default -> false;
+        };
+    }
+
+    private static boolean returnsReference(FunctionSymbol function) {
+        final Type type = function.type();
+        return type != null && type.registerType().isReferenceType();
+    }
+}
@@ -0,0 +1,486 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.symbols.FunctionSymbol;
+import net.smackem.zlang.symbols.MethodSymbol;
+import net.smackem.zlang.symbols.RegisterTypeId;
+import net.smackem.zlang.symbols.VariableSymbol;
+
+import java.util.*;
+
+/**
+ * Evaluates instructions with constant operands at compile time.
+ * <p>
+ *     Constants are propagated through registers along the control flow of each function, starting
+ *     with {@code Ldc} instructions. Immutable global variables ({@code let}) of primitive type are
+ *     treated as compile-time constants if they are initialized with a constant value: outside module
+ *     initializers and the functions they may call, loading them is replaced with loading the constant.
+ * </p>
+ * <p>
+ *     Instructions that compute a constant are replaced with a {@code Ldc} instruction, conditional
+ *     branches on constant conditions are replaced with unconditional branches or removed. Afterwards,
+ *     unreachable instructions (e.g. dead {@code if} branches) and side effect free instructions whose
+ *     result is never read are removed.
+ * </p>
+ */
+public final class ConstantFoldingPass implements OptimizationPass {
+
+    @Override
+    public String name() {
+        return "constant-folding";
+    }
+
+    @Override
+    public void run(Program program) {
+        new Folding(program).run();
+        removeUnreachableCode(program);
+        removeDeadCode(program);
+    }
+
+    private static void removeUnreachableCode(Program program) {
+        final FlowGraph graph = new FlowGraph(program.instructions());
+        final BitSet reachable = graph.reachableFrom(program.functionEntries().values());
+        final Set<Instruction> removed = new HashSet<>();
+        for (int index = reachable.nextClearBit(0); index < graph.size(); index = reachable.nextClearBit(index + 1)) {
+            removed.add(graph.instruction(index));
+        }
+        program.removeInstructions(removed);
+    }
+
+    /**
+     * Instructions without side effects other than writing their target register.
+     */
+    private static final Set<OpCode> sideEffectFree = EnumSet.of(
+            OpCode.Ldc_i32, OpCode.Ldc_f64, OpCode.Ldc_str, OpCode.Ldc_zero, OpCode.Mov,
+            OpCode.LdGlb_i32, OpCode.LdGlb_f64, OpCode.LdGlb_u8, OpCode.LdGlb_ref, OpCode.LdGlb_ptr,
+            OpCode.Add_i32, OpCode.Add_f64, OpCode.Add_u8,
+            OpCode.Sub_i32, OpCode.Sub_f64, OpCode.Sub_u8,
+            OpCode.Mul_i32, OpCode.Mul_f64, OpCode.Mul_u8,
+            OpCode.Div_f64, OpCode.Mod_f64,
+            OpCode.Eq_i32, OpCode.Eq_f64, OpCode.Eq_u8, OpCode.Eq_ref, OpCode.Eq_ptr,
+            OpCode.Ne_i32, OpCode.Ne_f64, OpCode.Ne_u8, OpCode.Ne_ref, OpCode.Ne_ptr,
+            OpCode.Gt_i32, OpCode.Gt_f64, OpCode.Gt_u8,
+            OpCode.Ge_i32, OpCode.Ge_f64, OpCode.Ge_u8,
+            OpCode.Lt_i32, OpCode.Lt_f64, OpCode.Lt_u8,
+            OpCode.Le_i32, OpCode.Le_f64, OpCode.Le_u8,
+            OpCode.And, OpCode.Or,
+            OpCode.Band_i32, OpCode.Band_u8, OpCode.Bor_i32, OpCode.Bor_u8, OpCode.Xor_i32, OpCode.Xor_u8,
+            OpCode.LShift_i32, OpCode.LShift_u8, OpCode.RShift_i32, OpCode.RShift_u8,
+            OpCode.Eq_zero,
+            OpCode.Conv_i32, OpCode.Conv_f64, OpCode.Conv_u8);
+
+    private static void removeDeadCode(Program program) {
+        Set<Instruction> removed;
+        do {
+            final FlowGraph graph = new FlowGraph(program.instructions());
+            final BitSet[] liveOut = graph.liveOut();
+            removed = new HashSet<>();
+            for (int index = 0; index < graph.size(); index++) {
+                final Instruction instr = graph.instruction(index);
+                if (sideEffectFree.contains(instr.opCode())
+                    && liveOut[index].get(instr.registerArg(0).number()) == false) {
+                    removed.add(instr);
+                }
+            }
+            program.removeInstructions(removed);
+        } while (removed.isEmpty() == false);
+    }
+
+    private interface Constant { }
+    private static record IntConstant(int value) implements Constant { }
+    private static record FloatConstant(double value) implements Constant { }
+    private static record StringConstant(String value) implements Constant { }
+    /** all bits zero, see {@link OpCode#Ldc_zero} */
+    private static record ZeroConstant() implements Constant { }
+
+    private static final class Folding {
+        private final Program program;
+        private final FlowGraph graph;
+        private final BitSet initializerCode;
+        private Map<Long, Constant> globalConstants = Map.of();
+
+        Folding(Program program) {
+            this.program = program;
+            this.graph = new FlowGraph(program.instructions());
+            this.initializerCode = findInitializerCode();
+        }
+
+        void run() {
+            List<Map<Register, Constant>> states = propagate();
+            this.globalConstants = findGlobalConstants(states);
+            if (this.globalConstants.isEmpty() == false) {
+                states = propagate();
+            }
+            rewrite(states);
+        }
+
+        /**
+         * @return the instructions of the module initializers and of all functions they may call,
+         *      directly or indirectly. Immutable globals may still be uninitialized in this code.
+         */
+        private BitSet findInitializerCode() {
+            final int size = this.graph.size();
+            final Map<FunctionSymbol, Integer> starts = new HashMap<>();
+            this.program.functionEntries().forEach((function, entry) -> starts.put(function, this.graph.indexOf(entry)));
+            final int[] entryIndexes = starts.values().stream()
+                    .mapToInt(Integer::intValue)
+                    .sorted()
+                    .toArray();
+            final BitSet initializerCode = new BitSet(size);
+            final Set<FunctionSymbol> visited = new HashSet<>();
+            final Deque<FunctionSymbol> pending = new ArrayDeque<>();
+            for (final FunctionSymbol function : starts.keySet()) {
+                if (function.name().startsWith(Naming.GENERATED_INIT_FUNCTION_PREFIX)) {
+                    pending.push(function);
+                }
+            }
+            while (pending.isEmpty() == false) {
+                final FunctionSymbol function = pending.pop();
+                final Integer start = starts.get(function);
+                // built-in functions and interface methods have no code
+                if (start == null || visited.add(function) == false) {
+                    continue;
+                }
+                final int next = Arrays.binarySearch(entryIndexes, start) + 1;
+                final int end = next < entryIndexes.length ? entryIndexes[next] : size;
+                initializerCode.set(start, end);
+                for (int index = start; index < end; index++) {
+                    final Instruction instr = this.graph.instruction(index);
+                    switch (instr.opCode()) {
+                        case Call, TailCall -> pending.push((FunctionSymbol) instr.symbolArg());
+                        case CallVirt -> {
+                            // any implementation of the interface method may be called
+                            final String name = instr.symbolArg().name();
+                            for (final FunctionSymbol method : starts.keySet()) {
+                                if (method instanceof MethodSymbol && method.name().equals(name)) {
+                                    pending.push(method);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            return initializerCode;
+        }
+
+        /**
+         * @return for each instruction, the registers known to hold a constant before the instruction
+         *      is executed or {@code null} if the instruction is unreachable.
+         */
+        private List<Map<Register, Constant>> propagate() {
+            final int size = this.graph.size();
+            final List<Map<Register, Constant>> in = new ArrayList<>(Collections.nCopies(size, null));
+            final List<Map<Register, Constant>> out = new ArrayList<>(Collections.nCopies(size, null));
+            final Set<Integer> entries = new HashSet<>();
+            final Deque<Integer> pending = new ArrayDeque<>();
+            for (final Instruction entry : this.program.functionEntries().values()) {
+                entries.add(this.graph.indexOf(entry));
+                pending.add(this.graph.indexOf(entry));
+            }
+            while (pending.isEmpty() == false) {
+                final int index = pending.poll();
+                final Map<Register, Constant> state = entries.contains(index)
+                        ? new HashMap<>() // nothing is known about arguments and registers at function entry
+                        : meet(this.graph.predecessors(index), out);
+                final Map<Register, Constant> result = transfer(this.graph.instruction(index), index, state);
+                in.set(index, state);
+                if (result.equals(out.get(index)) == false) {
+                    out.set(index, result);
+                    for (final int successor : this.graph.successors(index)) {
+                        pending.add(successor);
+                    }
+                }
+            }
+            return in;
+        }
+
+        private static Map<Register, Constant> meet(int[] predecessors, List<Map<Register, Constant>> out) {
+            Map<Register, Constant> state = null;
+            for (final int predecessor : predecessors) {
+                final Map<Register, Constant> predecessorState = out.get(predecessor);
+                if (predecessorState == null) {
+                    continue; // not visited yet
+                }
+                if (state == null) {
+                    state = new HashMap<>(predecessorState);
+                } else {
+                    state.entrySet().removeIf(entry ->
+                            Objects.equals(predecessorState.get(entry.getKey()), entry.getValue()) == false);
+                }
+            }
+            return state != null ? state : new HashMap<>();
+        }
+
+        private Map<Register, Constant> transfer(Instruction instr, int index, Map<Register, Constant> state) {
+            final Map<Register, Constant> result = new HashMap<>(state);
+            final Register written = RegisterAccess.written(instr);
+            if (written != null) {
+                final Constant constant = evaluate(instr, index, state);
+                if (constant != null) {
+                    result.put(written, constant);
+                } else {
+                    result.remove(written);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @return the immutable primitive global variables that are stored exactly once, in a module
+         *      initializer, with a constant value. Keyed by global address.
+         */
+        private Map<Long, Constant> findGlobalConstants(List<Map<Register, Constant>> states) {
+            final Set<Long> candidates = new HashSet<>();
+            for (final VariableSymbol global : this.program.globals()) {
+                if (global.isAssignable() == false && global.type().registerType().isReferenceType() == false) {
+                    candidates.add((long) global.address());
+                }
+            }
+            final Map<Long, Integer> storeCounts = new HashMap<>();
+            final Map<Long, Constant> constants = new HashMap<>();
+            for (int index = 0; index < this.graph.size(); index++) {
+                final Instruction instr = this.graph.instruction(index);
+                if (isGlobalStore(instr.opCode()) == false || candidates.contains(instr.intArg()) == false) {
+                    continue;
+                }
+                storeCounts.merge(instr.intArg(), 1, Integer::sum);
+                final Constant constant = states.get(index) != null ? states.get(index).get(instr.registerArg(0)) : null;
+                if (constant != null && this.initializerCode.get(index)) {
+                    constants.put(instr.intArg(), constant);
+                }
+            }
+            constants.keySet().removeIf(address -> storeCounts.get(address) != 1);
+            return constants;
+        }
+
+        private void rewrite(List<Map<Register, Constant>> states) {
+            final Map<Instruction, Instruction> replacements = new HashMap<>();
+            final Set<Instruction> removed = new HashSet<>();
+            for (int index = 0; index < this.graph.size(); index++) {
+                final Map<Register, Constant> state = states.get(index);
+                if (state == null) {
+                    continue;
+                }
+                final Instruction instr = this.graph.instruction(index);
+                if (instr.opCode() == OpCode.Br_zero) {
+                    final Integer condition = intValue(state.get(instr.registerArg(0)));
+                    if (condition == null) {
+                        continue;
+                    }
+                    if (condition == 0) {
+                        final Instruction branch = new Instruction(OpCode.Br);
+                        branch.setLabelArg(instr.labelArg());
+                        replacements.put(instr, branch);
+                    } else {
+                        removed.add(instr);
+                    }
+                    continue;
+                }
+                final Register written = RegisterAccess.written(instr);
+                if (written == null || isLoad(instr.opCode())) {
+                    continue;
+                }
+                final Constant constant = evaluate(instr, index, state);
+                if (constant != null) {
+                    replacements.put(instr, load(written, constant));
+                }
+            }
+            this.program.replaceInstructions(replacements);
+            this.program.removeInstructions(removed);
+        }
+
+        private Constant evaluate(Instruction instr, int index, Map<Register, Constant> state) {
+            final Constant left = instr.registerArg(1) != null ? state.get(instr.registerArg(1)) : null;
+            final Constant right = instr.registerArg(2) != null ? state.get(instr.registerArg(2)) : null;
+            return switch (instr.opCode()) {
+                case Ldc_i32 -> new IntConstant((int) instr.intArg());
+                case Ldc_f64 -> new FloatConstant(instr.floatArg());
+                case Ldc_str -> new StringConstant(instr.strArg());
+                case Ldc_zero -> new ZeroConstant();
+                case Mov -> left;
+                case LdGlb_i32, LdGlb_f64, LdGlb_u8 -> this.initializerCode.get(index)
+                        ? null
+                        : this.globalConstants.get(instr.intArg());
+                case Add_i32 -> foldInt(left, right, Integer::sum);
+                case Sub_i32 -> foldInt(left, right, (l, r) -> l - r);
+                case Mul_i32 -> foldInt(left, right, (l, r) -> l * r);
+                case Div_i32 -> foldInt(left, right, (l, r) -> isDivisible(l, r) ? l / r : null);
+                case Mod_i32 -> foldInt(left, right, (l, r) -> isDivisible(l, r) ? l % r : null);
+                case Band_i32 -> foldInt(left, right, (l, r) -> l & r);
+                case Bor_i32 -> foldInt(left, right, (l, r) -> l | r);
+                case Xor_i32 -> foldInt(left, right, (l, r) -> l ^ r);
+                case LShift_i32 -> foldInt(left, right, (l, r) -> r >= 0 && r < 32 ? l << r : null);
+                case RShift_i32 -> foldInt(left, right, (l, r) -> r >= 0 && r < 32 ? l >> r : null);
+                case Add_u8 -> foldByte(left, right, Integer::sum);
+                case Sub_u8 -> foldByte(left, right, (l, r) -> l - r);
+                case Mul_u8 -> foldByte(left, right, (l, r) -> l * r);
+                case Div_u8 -> foldByte(left, right, (l, r) -> isDivisible(l, r) ? l / r : null);
+                case Mod_u8 -> foldByte(left, right, (l, r) -> isDivisible(l, r) ? l % r : null);
+                case Band_u8 -> foldByte(left, right, (l, r) -> l & r);
+                case Bor_u8 -> foldByte(left, right, (l, r) -> l | r);
+                case Xor_u8 -> foldByte(left, right, (l, r) -> l ^ r);
+                case LShift_u8 -> foldByte(left, right, (l, r) -> r >= 0 && r < 32 ? l << r : null);
+                case RShift_u8 -> foldByte(left, right, (l, r) -> r >= 0 && r < 32 ? l >> r : null);
+                case Eq_i32, Eq_u8 -> foldInt(left, right, (l, r) -> bool(l.intValue() == r.intValue()));
+                case Ne_i32, Ne_u8 -> foldInt(left, right, (l, r) -> bool(l.intValue() != r.intValue()));
+                case Gt_i32, Gt_u8 -> foldInt(left, right, (l, r) -> bool(l > r));
+                case Ge_i32, Ge_u8 -> foldInt(left, right, (l, r) -> bool(l >= r));
+                case Lt_i32, Lt_u8 -> foldInt(left, right, (l, r) -> bool(l < r));
+                case Le_i32, Le_u8 -> foldInt(left, right, (l, r) -> bool(l <= r));
+                case And -> foldInt(left, right, (l, r) -> bool(l != 0 && r != 0));
+                case Or -> foldInt(left, right, (l, r) -> bool(l != 0 || r != 0));
+                case Add_f64 -> foldFloat(left, right, Double::sum);
+                case Sub_f64 -> foldFloat(left, right, (l, r) -> l - r);
+                case Mul_f64 -> foldFloat(left, right, (l, r) -> l * r);
+                case Div_f64 -> foldFloat(left, right, (l, r) -> l / r);
+                case Mod_f64 -> foldFloat(left, right, (l, r) -> isIntRange(l) && isIntRange(r) && (int) r.doubleValue() != 0
+                        ? (double) ((int) l.doubleValue() % (int) r.doubleValue())
+                        : null);
+                case Eq_f64 -> compareFloat(left, right, (l, r) -> l.doubleValue() == r.doubleValue());
+                case Ne_f64 -> compareFloat(left, right, (l, r) -> l.doubleValue() != r.doubleValue());
+                case Gt_f64 -> compareFloat(left, right, (l, r) -> l > r);
+                case Ge_f64 -> compareFloat(left, right, (l, r) -> l >= r);
+                case Lt_f64 -> compareFloat(left, right, (l, r) -> l < r);
+                case Le_f64 -> compareFloat(left, right, (l, r) -> l <= r);
+                case Eq_zero -> intValue(left) != null ? new IntConstant(bool(intValue(left) == 0)) : null;
+                case Add_str -> left instanceof StringConstant l && right instanceof StringConstant r ? new StringConstant(l.value() + r.value()) : null;
+                case Conv_i32 -> convertInt(intValue(left), (int) instr.intArg());
+                case Conv_u8 -> intValue(left) != null ? convertInt(intValue(left) & 0xff, (int) instr.intArg()) : null;
+                case Conv_f64 -> convertFloat(floatValue(left), (int) instr.intArg());
+                default -> null;
+            };
+        }
+    }
+
+    private interface IntFold {
+        Integer apply(Integer left, Integer right);
+    }
+
+    private interface FloatFold {
+        Double apply(Double left, Double right);
+    }
+
+    private interface FloatComparison {
+        boolean apply(Double left, Double right);
+    }
+
+    private static Constant foldInt(Constant left, Constant right, IntFold fold) {
+        final Integer l = intValue(left);
+        final Integer r = intValue(right);
+        if (l == null || r == null) {
+            return null;
+        }
+        final Integer result = fold.apply(l, r);
+        return result != null ? new IntConstant(result) : null;
+    }
+
+    private static Constant foldByte(Constant left, Constant right, IntFold fold) {
+        return foldInt(left, right, (l, r) -> {
+            final Integer result = fold.apply(l, r);
+            return result != null ? result & 0xff : null;
+        });
+    }
+
+    private static Constant foldFloat(Constant left, Constant right, FloatFold fold) {
+        final Double l = floatValue(left);
+        final Double r = floatValue(right);
+        if (l == null || r == null) {
+            return null;
+        }
+        final Double result = fold.apply(l, r);
+        return result != null ? new FloatConstant(result) : null;
+    }
+
+    private static Constant compareFloat(Constant left, Constant right, FloatComparison comparison) {
+        final Double l = floatValue(left);
+        final Double r = floatValue(right);
+        return l != null && r != null ? new IntConstant(bool(comparison.apply(l, r))) : null;
+    }
+
+    private static Constant convertInt(Integer value, int targetType) {
+        if (value == null) {
+            return null;
+        }
+        if (targetType == RegisterTypeId.Int32.number()) {
+            return new IntConstant(value);
+        }
+        if (targetType == RegisterTypeId.Unsigned8.number()) {
+            return new IntConstant(value & 0xff);
+        }
+        if (targetType == RegisterTypeId.Float64.number()) {
+            return new FloatConstant(value);
+        }
+        return null;
+    }
+
+    private static Constant convertFloat(Double value, int targetType) {
+        if (value == null) {
+            return null;
+        }
+        if (targetType == RegisterTypeId.Float64.number()) {
+            return new FloatConstant(value);
+        }
+        if ((targetType == RegisterTypeId.Int32.number() || targetType == RegisterTypeId.Unsigned8.number())
+            && isIntRange(value)) {
+            return new IntConstant((int) value.doubleValue());
+        }
+        return null;
+    }
+
+    private static Integer intValue(Constant constant) {
+        if (constant instanceof IntConstant i) {
+            return i.value();
+        }
+        return constant instanceof ZeroConstant ? 0 : null;
+    }
+
+    private static Double floatValue(Constant constant) {
+        if (constant instanceof FloatConstant f) {
+            return f.value();
+        }
+        return constant instanceof ZeroConstant ? 0.0 : null;
+    }
+
+    private static int bool(boolean value) {
+        return value ? 1 : 0;
+    }
+
+    private static boolean isDivisible(int left, int right) {
+        return right != 0 && (left != Integer.MIN_VALUE || right != -1);
+    }
+
+    private static boolean isIntRange(double value) {
+        return value > Integer.MIN_VALUE - 1.0 && value < Integer.MAX_VALUE + 1.0;
+    }
+
+    private static boolean isLoad(OpCode opCode) {
+        return switch (opCode) {
+            case Ldc_i32, Ldc_f64, Ldc_str, Ldc_zero, Mov -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean isGlobalStore(OpCode opCode) {
+        return switch (opCode) {
+            case StGlb_i32, StGlb_f64, StGlb_u8, StGlb_ref, StGlb_ptr -> true;
+            default -> false;
+        };
+    }
+
+    private static Instruction load(Register target, Constant constant) {
+        final Instruction instr;
+        if (constant instanceof IntConstant i) {
+            instr = new Instruction(OpCode.Ldc_i32);
+            instr.setIntArg(i.value());
+        } else if (constant instanceof FloatConstant f) {
+            instr = new Instruction(OpCode.Ldc_f64);
+            instr.setFloatArg(f.value());
+        } else if (constant instanceof StringConstant s) {
+            instr = new Instruction(OpCode.Ldc_str);
+            instr.setStrArg(s.value());
+        } else {
+            instr = new Instruction(OpCode.Ldc_zero);
+        }
+        instr.setRegisterArg(0, target);
+        return instr;
+    }
+}
@@ -16,7 +16,7 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
     private final List<Type> types = new ArrayList<>();
     private final List<FunctionSymbol> functions = new ArrayList<>();
     private final List<Instruction> instructions = new ArrayList<>();
-    private final Map<FunctionSymbol, Instruction> codeMap = new HashMap<>();
+    private final Map<FunctionSymbol, Instruction> codeMap = new LinkedHashMap<>();
     private final FunctionSymbol initFunction;
     private final Set<Register> allocatedRegisters = EnumSet.noneOf(Register.class);
     private final List<Instruction> initInstructions = new ArrayList<>();
@@ -24,6 +24,7 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
     private final Deque<BlockExprInfo> blockExprInfos = new ArrayDeque<>();
     private List<Instruction> currentInstructions = instructions;
     private FunctionSymbol currentFunction;
+    private ParserRuleContext currentFunctionCtx;
     private Register firstVolatileRegister;
 
     EmitWalker(String moduleName, ProgramStructure programStructure) {
@@ -79,7 +80,7 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
     public Value visitFunctionDecl(ZLangParser.FunctionDeclContext ctx) {
         enterScope(ctx);
         final FunctionSymbol function = (FunctionSymbol) currentScope();
-        enterFunction(function, this.instructions);
+        enterFunction(ctx, function, this.instructions);
         this.functions.add(this.currentFunction);
         super.visitFunctionDecl(ctx);
         if (currentFunctionEndsWithReturn() == false) {
@@ -99,7 +100,7 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
             return false;
         }
         final Instruction instr = this.currentInstructions.get(this.currentInstructions.size() - 1);
-        return instr.opCode() == OpCode.Ret || instr.opCode() == OpCode.Halt;
+        return instr.opCode() == OpCode.Ret || instr.opCode() == OpCode.Halt || instr.opCode() == OpCode.TailCall;
     }
 
     @Override
@@ -153,7 +154,7 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
     private void emitInitAssignment(ParserRuleContext ctx, String ident, ZLangParser.ExprContext expr) {
         if (this.currentFunction == null) {
             // global var
-            enterFunction(this.initFunction, this.initInstructions);
+            enterFunction(ctx, this.initFunction, this.initInstructions);
         }
         if (expr != null) {
             emitIdentAssign(ctx, ident, expr, true);
@@ -223,14 +224,17 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
             logLocalError(ctx, "access to foreign variables not allowed");
             return null;
         }
+        // count the reference through the variable's register where possible, so that it pairs up
+        // with the RemoveRef on cleanup
+        Register referenceRegister = rvalue.register;
         if (variable.isGlobal()) {
             emit(OpCode.stGlb(variable.type()), rvalue.register, variable.address());
         } else {
-            final Register r = Register.fromNumber(variable.address());
-            emit(OpCode.Mov, r, rvalue.register);
+            referenceRegister = Register.fromNumber(variable.address());
+            emit(OpCode.Mov, referenceRegister, rvalue.register);
         }
         if (rvalue.type.registerType().isReferenceType()) {
-            emit(OpCode.AddRef, rvalue.register);
+            emit(OpCode.AddRef, referenceRegister);
         }
         freeRegister(rvalue.register);
         return variable;
@@ -330,6 +334,12 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
                 return logLocalError(ctx, "incompatible return type. expecting %s, got %s".formatted(
                         this.currentFunction.type(), value.type()));
             }
+            final Instruction call = tailCallCandidate(value);
+            if (call != null) {
+                emitTailCall(call);
+                freeRegister(value.register);
+                return null;
+            }
             emit(OpCode.Mov, Register.R000, value.register);
             returnsReference = value.type().registerType().isReferenceType();
             if (returnsReference) {
@@ -345,6 +355,42 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
         return null;
     }
 
+    /**
+     * @return the {@link OpCode#Call} that computed {@code value} if it is the last instruction emitted
+     *      for the current function and can be replaced with a {@link OpCode#TailCall}, otherwise {@code null}.
+     */
+    private Instruction tailCallCandidate(Value value) {
+        if (this.currentFunction.isEntryPoint() || this.currentInstructions.isEmpty()) {
+            return null;
+        }
+        final Instruction instr = this.currentInstructions.get(this.currentInstructions.size() - 1);
+        return instr.opCode() == OpCode.Call && instr.registerArg(0) == value.register
+                ? instr
+                : null;
+    }
+
+    /**
+     * Replaces {@code call} with a {@link OpCode#TailCall} that passes the return value of the callee
+     * directly to the caller of the current function. The reference arguments are referenced while the
+     * current function releases its references, which may include the last references to the arguments.
+     */
+    private void emitTailCall(Instruction call) {
+        this.currentInstructions.remove(this.currentInstructions.size() - 1);
+        final FunctionSymbol callee = (FunctionSymbol) call.symbolArg();
+        final List<Register> referenceArguments = new ArrayList<>();
+        int argument = call.registerArg(1).number();
+        for (final Symbol parameter : callee.symbols()) {
+            if (parameter.type().registerType().isReferenceType()) {
+                referenceArguments.add(Register.fromNumber(argument));
+            }
+            argument++;
+        }
+        referenceArguments.forEach(register -> emit(OpCode.AddRef, register));
+        emitFunctionCleanup(this.currentFunction);
+        referenceArguments.forEach(register -> emit(OpCode.RemoveRef, register));
+        emit(OpCode.TailCall, null, call.registerArg(1), callee);
+    }
+
     @Override
     public Value visitInvocationStmt(ZLangParser.InvocationStmtContext ctx) {
         final Value retVal = super.visitInvocationStmt(ctx);
@@ -369,13 +415,11 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
         final int conditionIndex = this.currentInstructions.size();
         final Label loopLabel = addLabel();
         final Label exitLabel = addLabel();
-        final Value condition = ctx.expr().accept(this);
-        if (condition.type != BuiltInType.BOOL.type()) {
-            return logLocalError(ctx, "while condition is not of type bool, but " + condition.type);
+        final Type conditionType = emitCondition(ctx.expr(), exitLabel);
+        if (conditionType != BuiltInType.BOOL.type()) {
+            return logLocalError(ctx, "while condition is not of type bool, but " + conditionType);
         }
         loopLabel.setTarget(this.currentInstructions.get(conditionIndex));
-        emitBranch(condition.register, exitLabel);
-        freeRegister(condition.register);
         ctx.block().accept(this);
         emit(OpCode.Collect);
         emitBranch(loopLabel);
@@ -399,13 +443,11 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
 
     private void emitIfBranch(ZLangParser.ExprContext expr, ZLangParser.BlockContext block, Label exitLabel) {
         final Label skipLabel = addLabel();
-        final Value condition = expr.accept(this);
-        if (condition.type != BuiltInType.BOOL.type()) {
-            logLocalError(expr, "if condition is not of type bool, but " + condition.type);
+        final Type conditionType = emitCondition(expr, skipLabel);
+        if (conditionType != BuiltInType.BOOL.type()) {
+            logLocalError(expr, "if condition is not of type bool, but " + conditionType);
             return;
         }
-        emitBranch(condition.register, skipLabel);
-        freeRegister(condition.register);
         block.accept(this);
         emitBranch(exitLabel);
         skipLabel.setTarget(emitNop());
@@ -569,12 +611,11 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
         if (ctx.If() != null) {
             Label elseLabel = addLabel();
             Label exitLabel = addLabel();
-            final Value condition = ctx.conditionalOrExpr(1).accept(this);
-            if (condition.type != BuiltInType.BOOL.type()) {
-                return logLocalError(ctx, "if condition is not of type bool, but " + condition.type);
+            final Type conditionType = emitCondition(ctx.conditionalOrExpr(1), elseLabel);
+            if (conditionType != BuiltInType.BOOL.type()) {
+                return logLocalError(ctx, "if condition is not of type bool, but " + conditionType);
             }
-            emitBranch(condition.register, elseLabel);
-            final Register target = allocFreedRegister(condition.register);
+            final Register target = allocFreedRegister();
             Value result = ctx.conditionalOrExpr(0).accept(this);
             emit(OpCode.Mov, target, result.register);
             freeRegister(result.register);
@@ -601,14 +642,25 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
         if (ctx.Or() == null) {
             return super.visitConditionalOrExpr(ctx);
         }
+        // the right operand is evaluated only if the left operand is false
+        final Label rightLabel = addLabel();
+        final Label exitLabel = addLabel();
         final Value left = ctx.conditionalAndExpr().accept(this);
+        if (left.type != BuiltInType.BOOL.type()) {
+            return logLocalError(ctx, "non-boolean operand in OR expression");
+        }
+        final Register target = allocFreedRegister(left.register);
+        emit(OpCode.Mov, target, left.register);
+        emitBranch(target, rightLabel);
+        emitBranch(exitLabel);
+        rightLabel.setTarget(emitNop());
         final Value right = ctx.conditionalOrExpr().accept(this);
-        final Register target = allocFreedRegister(left.register, right.register);
-        if (left.type != BuiltInType.BOOL.type() || right.type != BuiltInType.BOOL.type()) {
+        if (right.type != BuiltInType.BOOL.type()) {
             return logLocalError(ctx, "non-boolean operand in OR expression");
         }
-
-        emit(OpCode.Or, target, left.register, right.register);
+        emit(OpCode.Mov, target, right.register);
+        freeRegister(right.register);
+        exitLabel.setTarget(emitNop());
         return value(target, BuiltInType.BOOL.type());
     }
 
@@ -617,17 +669,80 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
         if (ctx.And() == null) {
             return super.visitConditionalAndExpr(ctx);
         }
+        // the right operand is evaluated only if the left operand is true
+        final Label exitLabel = addLabel();
         final Value left = ctx.relationalExpr().accept(this);
+        if (left.type != BuiltInType.BOOL.type()) {
+            return logLocalError(ctx, "non-boolean operand in AND expression");
+        }
+        final Register target = allocFreedRegister(left.register);
+        emit(OpCode.Mov, target, left.register);
+        emitBranch(target, exitLabel);
         final Value right = ctx.conditionalAndExpr().accept(this);
-        final Register target = allocFreedRegister(left.register, right.register);
-        if (left.type != BuiltInType.BOOL.type() || right.type != BuiltInType.BOOL.type()) {
+        if (right.type != BuiltInType.BOOL.type()) {
             return logLocalError(ctx, "non-boolean operand in AND expression");
         }
-
-        emit(OpCode.And, target, left.register, right.register);
+        emit(OpCode.Mov, target, right.register);
+        freeRegister(right.register);
+        exitLabel.setTarget(emitNop());
         return value(target, BuiltInType.BOOL.type());
     }
 
+    /**
+     * Emits code that falls through if the condition {@code ctx} is true and branches to {@code falseLabel}
+     * if it is false. Operands of {@code and} and {@code or} branch directly instead of computing
+     * a bool value and are only evaluated as far as needed to decide the condition.
+     *
+     * @return the type of the condition, which is bool unless {@code ctx} is a single operand of another type.
+     */
+    private Type emitCondition(ZLangParser.ExprContext ctx, Label falseLabel) {
+        if (ctx.If() != null) {
+            return emitConditionValue(ctx, falseLabel);
+        }
+        return emitCondition(ctx.conditionalOrExpr(0), falseLabel);
+    }
+
+    private Type emitCondition(ZLangParser.ConditionalOrExprContext ctx, Label falseLabel) {
+        if (ctx.Or() == null) {
+            return emitCondition(ctx.conditionalAndExpr(), falseLabel);
+        }
+        final Label rightLabel = addLabel();
+        final Label trueLabel = addLabel();
+        if (emitCondition(ctx.conditionalAndExpr(), rightLabel) != BuiltInType.BOOL.type()) {
+            logLocalError(ctx, "non-boolean operand in OR expression");
+            return null;
+        }
+        emitBranch(trueLabel);
+        rightLabel.setTarget(emitNop());
+        if (emitCondition(ctx.conditionalOrExpr(), falseLabel) != BuiltInType.BOOL.type()) {
+            logLocalError(ctx, "non-boolean operand in OR expression");
+            return null;
+        }
+        trueLabel.setTarget(emitNop());
+        return BuiltInType.BOOL.type();
+    }
+
+    private Type emitCondition(ZLangParser.ConditionalAndExprContext ctx, Label falseLabel) {
+        if (ctx.And() == null) {
+            return emitConditionValue(ctx.relationalExpr(), falseLabel);
+        }
+        if (emitConditionValue(ctx.relationalExpr(), falseLabel) != BuiltInType.BOOL.type()
+                || emitCondition(ctx.conditionalAndExpr(), falseLabel) != BuiltInType.BOOL.type()) {
+            logLocalError(ctx, "non-boolean operand in AND expression");
+            return null;
+        }
+        return BuiltInType.BOOL.type();
+    }
+
+    private Type emitConditionValue(ParserRuleContext ctx, Label falseLabel) {
+        final Value condition = ctx.accept(this);
+        if (condition.type == BuiltInType.BOOL.type()) {
+            emitBranch(condition.register, falseLabel);
+        }
+        freeRegister(condition.register);
+        return condition.type;
+    }
+
     @Override
     public Value visitRelationalExpr(ZLangParser.RelationalExprContext ctx) {
         if (ctx.relationalOp() == null) {
@@ -679,10 +794,31 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
             return logLocalError(ctx.type(), "type checks are only valid for user types, not for " + type);
         }
         final Register target = allocFreedRegister(left.register);
+        if (left.type instanceof AggregateTypeSymbol aggregate && isInstanceCreation(ctx.additiveExpr())) {
+            // a newly created object is not nil and its dynamic type is its static type
+            final boolean matches = aggregate == type || aggregate.implementedInterfaces().contains(type);
+            emit(OpCode.Ldc_i32, target, matches ? 1 : 0);
+            return value(target, BuiltInType.BOOL.type());
+        }
         emit(OpCode.TypeChk, target, left.register, (Symbol) type);
         return value(target, BuiltInType.BOOL.type());
     }
 
+    /**
+     * @return {@code true} if {@code ctx} does nothing but create a struct, union or list instance.
+     *      Other expressions of these types may yield objects of any type, since casts are not checked.
+     */
+    private static boolean isInstanceCreation(ParserRuleContext ctx) {
+        ParserRuleContext inner = ctx;
+        while (inner.getChildCount() == 1 && inner.getChild(0) instanceof ParserRuleContext child) {
+            inner = child;
+        }
+        return inner instanceof ZLangParser.StructInstanceCreationContext
+               || inner instanceof ZLangParser.UnionInstanceCreationContext
+               || inner instanceof ZLangParser.ListInstanceCreationContext
+               || inner instanceof ZLangParser.ListInstanceCreationFromArrayContext;
+    }
+
     @Override
     public Value visitAdditiveExpr(ZLangParser.AdditiveExprContext ctx) {
         if (ctx.additiveOp() == null) {
@@ -1123,6 +1259,7 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
         final UnionSymbol unionType = (UnionSymbol) union.type;
         final Register flagRegister = allocFreedRegister();
         final Label exitLabel = addLabel();
+        final Label elseLabel = addLabel();
         final Register resultRegister = allocFreedRegister();
         final Set<String> unvisitedFieldNames = unionType.symbols().stream()
                 .filter(s -> s != unionType.flagField())
@@ -1130,10 +1267,26 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
                 .collect(Collectors.toSet());
         emit(OpCode.ldFld(unionType.flagField().type()), flagRegister, union.register, unionType.flagField().address());
 
-        Type resultType = null;
+        // jump directly to the clause of the flag: the field id is the index into the branch table
+        final List<Label> table = new ArrayList<>(Collections.nCopies(unvisitedFieldNames.size(), elseLabel));
+        final List<Label> clauseLabels = new ArrayList<>();
         for (final var branch : ctx.switchUnionFieldClause()) {
+            final Label clauseLabel = addLabel();
+            final Symbol field = unionType.resolveMember(branch.unionParameter().Ident().getText());
+            if (field != null && field != unionType.flagField() && table.get(unionType.getFieldId(field)) == elseLabel) {
+                table.set(unionType.getFieldId(field), clauseLabel);
+            }
+            clauseLabels.add(clauseLabel);
+        }
+        emitBranchTable(flagRegister, table);
+        emitBranch(elseLabel);
+        freeRegister(flagRegister);
+
+        Type resultType = null;
+        for (int index = 0; index < ctx.switchUnionFieldClause().size(); index++) {
+            final var branch = ctx.switchUnionFieldClause(index);
             final Type branchType = emitSwitchUnionFieldClause(
-                    branch, unionType, union.register, flagRegister, resultRegister, exitLabel);
+                    branch, unionType, union.register, resultRegister, clauseLabels.get(index), exitLabel);
             if (resultType == null) {
                 resultType = branchType;
             } else {
@@ -1145,6 +1298,7 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
             unvisitedFieldNames.remove(fieldIdent);
         }
 
+        elseLabel.setTarget(emitNop());
         if (ctx.switchUnionElseClause() != null) {
             final Value elseValue = ctx.switchUnionElseClause().expr().accept(this);
             if (Types.isAssignable(resultType, elseValue.type) == false) {
@@ -1157,7 +1311,7 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
             }
         }
 
-        freeRegister(flagRegister, union.register);
+        freeRegister(union.register);
         exitLabel.setTarget(emitNop());
         return value(resultRegister, resultType);
     }
@@ -1165,11 +1319,10 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
     private Type emitSwitchUnionFieldClause(ZLangParser.SwitchUnionFieldClauseContext branch,
                                             UnionSymbol union,
                                             Register unionRegister,
-                                            Register flagRegister,
                                             Register resultRegister,
+                                            Label clauseLabel,
                                             Label exitLabel) {
         enterScope(branch);
-        final Label skipLabel = addLabel();
         final String fieldIdent = branch.unionParameter().Ident().getText();
         final Symbol field = union.resolveMember(fieldIdent);
         final Symbol fieldLocal = currentScope().resolve(fieldIdent);
@@ -1177,17 +1330,11 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
             logLocalError(branch, "type mismatch for union field " + field.name());
             return null;
         }
-        final Register fieldFlagRegister = allocFreedRegister();
-        emit(OpCode.Ldc_i32, fieldFlagRegister, union.getFieldId(field));
-        final Register cmpRegister = allocFreedRegister(fieldFlagRegister);
-        emit(OpCode.eq(union.flagField().type()), cmpRegister, fieldFlagRegister, flagRegister);
-        emitBranch(cmpRegister, skipLabel);
-        freeRegister(cmpRegister, fieldFlagRegister);
+        clauseLabel.setTarget(emitNop());
         emit(OpCode.ldFld(field.type()), Register.fromNumber(fieldLocal.address()), unionRegister, field.address());
         final Value branchValue = branch.expr().accept(this);
         emit(OpCode.Mov, resultRegister, branchValue.register);
         emitBranch(exitLabel);
-        skipLabel.setTarget(emitNop());
         popScope();
         return branchValue.type;
     }
@@ -1283,7 +1430,7 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
         freeRegister(registersToFree);
         Register r = this.firstVolatileRegister;
         while (this.allocatedRegisters.contains(r)) {
-            r = r.next();
+            r = nextRegister(r);
         }
         this.allocatedRegisters.add(r);
         log.info("allocated registers: {}", this.allocatedRegisters);
@@ -1292,11 +1439,11 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
 
     private List<Register> allocRegisterRange(int count) {
         final List<Register> registers = new ArrayList<>();
-        Register r = getHighestAllocatedRegister().next();
+        Register r = getHighestAllocatedRegister();
         for (int i = 0; i < count; i++) {
+            r = nextRegister(r);
             this.allocatedRegisters.add(r);
             registers.add(r);
-            r = r.next();
         }
         log.info("allocated registers: {}", this.allocatedRegisters);
         return registers;
@@ -1331,8 +1478,30 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
         return Integer.parseInt(CharMatcher.is('_').removeFrom(text.substring(2)), 16);
     }
 
-    private void enterFunction(FunctionSymbol function, List<Instruction> instructions) {
+    private Register nextRegister(Register r) {
+        if (r.number() + 1 >= Register.count()) {
+            logRegisterOverflow();
+        }
+        return r.next();
+    }
+
+    private void logRegisterOverflow() {
+        logSemanticError(this.currentFunctionCtx, "function '%s' needs more than %d registers"
+                .formatted(this.currentFunction.name(), Register.count()));
+    }
+
+    /**
+     * @param ctx the rule context of the function declaration or, for the module initializer,
+     *      of the global variable declaration. Used to report errors.
+     */
+    private void enterFunction(ParserRuleContext ctx, FunctionSymbol function, List<Instruction> instructions) {
         log.info("entering function: {}", function.name());
+        this.currentFunction = function;
+        this.currentFunctionCtx = ctx;
+        final int top = function.symbols().size() + function.localCount() + 1;
+        if (top >= Register.count()) {
+            logRegisterOverflow();
+        }
         this.currentInstructions = instructions;
         this.codeMap.computeIfAbsent(function, ignored -> {
             final Instruction nop = emitNop();
@@ -1341,8 +1510,6 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
                     .forEach(s -> emit(OpCode.AddRef, Register.fromNumber(s.address())));
             return nop;
         });
-        this.currentFunction = function;
-        int top = this.currentFunction.symbols().size() + this.currentFunction.localCount() + 1;
         this.firstVolatileRegister = Register.fromNumber(top);
         this.allocatedRegisters.clear();
     }
@@ -1444,6 +1611,16 @@ class EmitWalker extends ScopeWalker<EmitWalker.Value> {
         this.currentInstructions.add(instr);
     }
 
+    private void emitBranchTable(Register register, List<Label> labels) {
+        final Instruction instr = new Instruction(OpCode.BrTable);
+        instr.setRegisterArg(0, register);
+        instr.setTableLabelArgs(labels);
+        for (final Label label : instr.branchLabels()) {
+            label.addSource(instr);
+        }
+        this.currentInstructions.add(instr);
+    }
+
     private Label addLabel() {
         final Label label = new Label();
         this.labels.add(label);
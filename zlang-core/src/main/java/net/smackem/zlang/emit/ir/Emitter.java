@@ -1,6 +1,7 @@
 package net.smackem.zlang.emit.ir;
 
 import net.smackem.zlang.modules.ParsedModule;
+import net.smackem.zlang.symbols.FunctionSymbol;
 import net.smackem.zlang.symbols.ProgramStructure;
 
 import java.util.*;
@@ -10,33 +11,40 @@ public final class Emitter {
     private Emitter() { }
 
     public static Program emit(ProgramStructure ps, Collection<ParsedModule> parsedModules) {
+        return emit(ps, parsedModules, Optimizer.standard());
+    }
+
+    public static Program emit(ProgramStructure ps, Collection<ParsedModule> parsedModules, Optimizer optimizer) {
         final List<EmittedModule> ems = new ArrayList<>();
         for (final ParsedModule module : parsedModules) {
             final EmitWalker emitWalker = new EmitWalker(module.moduleName(), ps);
             module.ast().accept(emitWalker);
             ems.add(emitWalker.buildModule());
         }
-        return buildProgram(ems, ps);
+        return buildProgram(ems, ps, optimizer);
     }
 
-    private static Program buildProgram(Collection<EmittedModule> emittedModules, ProgramStructure ps) {
+    private static Program buildProgram(Collection<EmittedModule> emittedModules, ProgramStructure ps, Optimizer optimizer) {
         final Program program = Program.emit(emittedModules, ps.globals(), ps.emittedTypes());
         fixupEntryPoint(program);
+        program.setOptimizationMetrics(optimizer.optimize(program));
         return program.freeze();
     }
 
     private static void fixupEntryPoint(Program program) {
-        final FunctionCode fc = program.codeMap().get(program.entryPoint());
+        final Instruction entry = program.functionEntries().get(program.entryPoint());
         final List<Instruction> instructions = program.instructions();
-        final int index = instructions.indexOf(fc.firstInstr());
-        program.codeMap().keySet().stream()
-                .filter(f -> f.name().startsWith(Naming.GENERATED_INIT_FUNCTION_PREFIX))
-                .forEach(f -> {
-                    final Instruction call = new Instruction(OpCode.Call);
-                    call.setRegisterArg(0, Register.R000);
-                    call.setRegisterArg(1, Register.R000);
-                    call.setSymbolArg(f);
-                    instructions.add(index + 1, call);
-                });
+        int index = instructions.indexOf(entry);
+        // call module initializers in module order, so that dependencies are initialized first
+        for (final FunctionSymbol f : program.functionEntries().keySet()) {
+            if (f.name().startsWith(Naming.GENERATED_INIT_FUNCTION_PREFIX)) {
+                final Instruction call = new Instruction(OpCode.Call);
+                call.setRegisterArg(0, Register.R000);
+                call.setRegisterArg(1, Register.R000);
+                call.setSymbolArg(f);
+                index++;
+                instructions.add(index, call);
+            }
+        }
     }
 }
@@ -0,0 +1,204 @@
+package net.smackem.zlang.emit.ir;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * The control flow between the instructions of a {@link Program}, one node per instruction.
+ * Branches lead to the targets of their labels, {@link OpCode#Ret}, {@link OpCode#Halt} and
+ * {@link OpCode#TailCall} have no successors and all other instructions fall through to the next instruction.
+ */
+final class FlowGraph {
+    private static final int[] NO_SUCCESSORS = new int[0];
+    private final List<Instruction> instructions;
+    private final Map<Instruction, Integer> indexes = new IdentityHashMap<>();
+    private final int[][] successors;
+    private int[][] predecessors;
+
+    FlowGraph(List<Instruction> instructions) {
+        this.instructions = instructions;
+        for (int index = 0; index < instructions.size(); index++) {
+            this.indexes.put(instructions.get(index), index);
+        }
+        this.successors = new int[instructions.size()][];
+        for (int index = 0; index < instructions.size(); index++) {
+            this.successors[index] = computeSuccessors(index);
+        }
+    }
+
+    int size() {
+        return this.instructions.size();
+    }
+
+    Instruction instruction(int index) {
+        return this.instructions.get(index);
+    }
+
+    int indexOf(Instruction instr) {
+        return this.indexes.get(instr);
+    }
+
+    int[] successors(int index) {
+        return this.successors[index];
+    }
+
+    int[] predecessors(int index) {
+        if (this.predecessors == null) {
+            this.predecessors = computePredecessors();
+        }
+        return this.predecessors[index];
+    }
+
+    /**
+     * @return the indexes of all instructions that can be reached from any of the given entry instructions.
+     */
+    BitSet reachableFrom(Collection<Instruction> entries) {
+        final BitSet reachable = new BitSet(size());
+        final Deque<Integer> pending = new ArrayDeque<>();
+        for (final Instruction entry : entries) {
+            pending.push(indexOf(entry));
+        }
+        while (pending.isEmpty() == false) {
+            final int index = pending.pop();
+            if (reachable.get(index)) {
+                continue;
+            }
+            reachable.set(index);
+            for (final int successor : this.successors[index]) {
+                pending.push(successor);
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * @return for each instruction, the number of its strongly connected component. Two instructions
+     *      have the same number if and only if each can be reached from the other.
+     */
+    int[] stronglyConnectedComponents() {
+        // Tarjan's algorithm, iterative to avoid deep recursion on long functions
+        final int size = size();
+        final int[] order = new int[size];
+        final int[] lowLink = new int[size];
+        final int[] nextSuccessor = new int[size];
+        final int[] components = new int[size];
+        final boolean[] onStack = new boolean[size];
+        Arrays.fill(order, -1);
+        final Deque<Integer> stack = new ArrayDeque<>();
+        final Deque<Integer> path = new ArrayDeque<>();
+        int counter = 0;
+        int componentCount = 0;
+        for (int root = 0; root < size; root++) {
+            if (order[root] >= 0) {
+                continue;
+            }
+            path.push(root);
+            while (path.isEmpty() == false) {
+                final int node = path.peek();
+                if (order[node] < 0) {
+                    order[node] = lowLink[node] = counter++;
+                    stack.push(node);
+                    onStack[node] = true;
+                }
+                if (nextSuccessor[node] < this.successors[node].length) {
+                    final int successor = this.successors[node][nextSuccessor[node]++];
+                    if (order[successor] < 0) {
+                        path.push(successor);
+                    } else if (onStack[successor]) {
+                        lowLink[node] = Math.min(lowLink[node], order[successor]);
+                    }
+                    continue;
+                }
+                path.pop();
+                if (path.isEmpty() == false) {
+                    lowLink[path.peek()] = Math.min(lowLink[path.peek()], lowLink[node]);
+                }
+                if (lowLink[node] == order[node]) {
+                    int member;
+                    do {
+                        member = stack.pop();
+                        onStack[member] = false;
+                        components[member] = componentCount;
+                    } while (member != node);
+                    componentCount++;
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * @return for each instruction, the numbers of the registers that may be read after the instruction
+     *      before they are written.
+     */
+    BitSet[] liveOut() {
+        final int size = size();
+        final BitSet[] liveIn = new BitSet[size];
+        final BitSet[] liveOut = new BitSet[size];
+        for (int index = 0; index < size; index++) {
+            liveIn[index] = new BitSet();
+            liveOut[index] = new BitSet();
+        }
+        boolean changed;
+        do {
+            changed = false;
+            for (int index = size - 1; index >= 0; index--) {
+                final BitSet out = liveOut[index];
+                for (final int successor : this.successors[index]) {
+                    out.or(liveIn[successor]);
+                }
+                final BitSet in = (BitSet) out.clone();
+                final Instruction instr = this.instructions.get(index);
+                final Register written = RegisterAccess.written(instr);
+                if (written != null) {
+                    in.clear(written.number());
+                }
+                RegisterAccess.addReads(instr, in);
+                if (in.equals(liveIn[index]) == false) {
+                    liveIn[index] = in;
+                    changed = true;
+                }
+            }
+        } while (changed);
+        return liveOut;
+    }
+
+    private int[] computeSuccessors(int index) {
+        final Instruction instr = this.instructions.get(index);
+        final boolean hasNext = index + 1 < this.instructions.size();
+        return switch (instr.opCode()) {
+            case Br -> new int[] { indexOf(instr.labelArg().target()) };
+            case BrTable -> IntStream.concat(
+                            hasNext ? IntStream.of(index + 1) : IntStream.empty(),
+                            instr.branchLabels().stream().mapToInt(label -> indexOf(label.target())))
+                    .distinct()
+                    .toArray();
+            case Ret, Halt, TailCall -> NO_SUCCESSORS;
+            default -> instr.opCode().isConditionalBranch()
+                    ? hasNext
+                        ? new int[] { index + 1, indexOf(instr.labelArg().target()) }
+                        : new int[] { indexOf(instr.labelArg().target()) }
+                    : hasNext ? new int[] { index + 1 } : NO_SUCCESSORS;
+        };
+    }
+
+    private int[][] computePredecessors() {
+        final int[] counts = new int[size()];
+        for (final int[] successors : this.successors) {
+            for (final int successor : successors) {
+                counts[successor]++;
+            }
+        }
+        final int[][] predecessors = new int[size()][];
+        for (int index = 0; index < size(); index++) {
+            predecessors[index] = new int[counts[index]];
+            counts[index] = 0;
+        }
+        for (int index = 0; index < size(); index++) {
+            for (final int successor : this.successors[index]) {
+                predecessors[successor][counts[successor]++] = index;
+            }
+        }
+        return predecessors;
+    }
+}
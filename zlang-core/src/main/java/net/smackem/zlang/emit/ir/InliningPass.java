@@ -0,0 +1,233 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.symbols.FunctionSymbol;
+
+import java.util.*;
+
+/**
+ * Replaces calls of small functions with the body of the called function.
+ * <p>
+ *     Only direct {@link OpCode#Call}s of straight-line functions are inlined, i.e. functions without
+ *     branches that end with a single {@link OpCode#Ret}, like accessors and other one-liners. Since the
+ *     pass works on the code of the whole program, calls are inlined across module boundaries.
+ *     A function is inlined if its body is at most {@link #SMALL_FUNCTION_SIZE} instructions long
+ *     or if it is called only once and at most {@link #SINGLE_CALL_FUNCTION_SIZE} instructions long.
+ * </p>
+ * <p>
+ *     The registers of the inlined function are renamed to registers above those of the caller
+ *     by adding a constant offset, which keeps consecutive argument registers consecutive.
+ *     The arguments are moved into the renamed parameter registers and the renamed return value
+ *     register is moved to the target register of the call. Registers that the inlined function
+ *     reads before writing them are zeroed, as they would be in a fresh stack frame.
+ * </p>
+ */
+public final class InliningPass implements OptimizationPass {
+    private static final int SMALL_FUNCTION_SIZE = 8;
+    private static final int SINGLE_CALL_FUNCTION_SIZE = 32;
+    private static final int MAX_ROUNDS = 3;
+
+    @Override
+    public String name() {
+        return "inlining";
+    }
+
+    @Override
+    public void run(Program program) {
+        // inlined code may contain calls that can be inlined as well
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            if (inlineCalls(program) == false) {
+                break;
+            }
+        }
+    }
+
+    private static boolean inlineCalls(Program program) {
+        final Map<FunctionSymbol, List<Instruction>> bodies = program.functionBodies();
+        final Map<FunctionSymbol, Integer> callCounts = new HashMap<>();
+        for (final List<Instruction> body : bodies.values()) {
+            for (final Instruction instr : body) {
+                if (instr.opCode() == OpCode.Call || instr.opCode() == OpCode.TailCall) {
+                    callCounts.merge((FunctionSymbol) instr.symbolArg(), 1, Integer::sum);
+                }
+            }
+        }
+        final Map<FunctionSymbol, List<Instruction>> inlinableBodies = new HashMap<>();
+        for (final var entry : bodies.entrySet()) {
+            final List<Instruction> body = inlinableBody(entry.getKey(), entry.getValue(),
+                    callCounts.getOrDefault(entry.getKey(), 0));
+            if (body != null) {
+                inlinableBodies.put(entry.getKey(), body);
+            }
+        }
+
+        final Map<Instruction, List<Instruction>> expansions = new IdentityHashMap<>();
+        for (final var entry : bodies.entrySet()) {
+            int topRegister = highestRegister(entry.getValue());
+            for (final Instruction instr : entry.getValue()) {
+                if (instr.opCode() != OpCode.Call || instr.symbolArg() == entry.getKey()) {
+                    continue;
+                }
+                final FunctionSymbol callee = (FunctionSymbol) instr.symbolArg();
+                final List<Instruction> body = inlinableBodies.get(callee);
+                if (body == null) {
+                    continue;
+                }
+                final int offset = topRegister + 1;
+                final int calleeTopRegister = Math.max(highestRegister(body), RegisterAccess.argumentCount(instr));
+                if (offset + calleeTopRegister >= Register.values().length) {
+                    continue;
+                }
+                expansions.put(instr, inline(instr, callee, body, offset));
+                topRegister = offset + calleeTopRegister;
+            }
+        }
+        program.expandInstructions(expansions);
+        return expansions.isEmpty() == false;
+    }
+
+    /**
+     * @return the instructions of {@code function} between its entry and its {@link OpCode#Ret}
+     *      or {@code null} if the function cannot or should not be inlined.
+     */
+    private static List<Instruction> inlinableBody(FunctionSymbol function, List<Instruction> body, int callCount) {
+        // module initializers are called only once, on program start
+        if (function.isEntryPoint()
+                || function.name().startsWith(Naming.GENERATED_INIT_FUNCTION_PREFIX)
+                || callCount == 0) {
+            return null;
+        }
+        int end = -1;
+        for (int index = 0; index < body.size(); index++) {
+            final Instruction instr = body.get(index);
+            if (instr.opCode().isConditionalBranch()) {
+                return null;
+            }
+            switch (instr.opCode()) {
+                case Br, BrTable, Halt, TailCall -> {
+                    return null;
+                }
+                case Call -> {
+                    if (instr.symbolArg() == function) {
+                        return null;
+                    }
+                }
+                case Ret -> {
+                    if (end < 0) {
+                        end = index;
+                    }
+                }
+            }
+        }
+        if (end < 0) {
+            return null;
+        }
+        final List<Instruction> inlinable = body.subList(0, end).stream()
+                .filter(instr -> instr.opCode() != OpCode.Nop)
+                .toList();
+        final int maxSize = callCount == 1 ? SINGLE_CALL_FUNCTION_SIZE : SMALL_FUNCTION_SIZE;
+        return inlinable.size() <= maxSize ? inlinable : null;
+    }
+
+    private static List<Instruction> inline(Instruction call, FunctionSymbol callee, List<Instruction> body, int offset) {
+        final List<Instruction> instructions = new ArrayList<>();
+        final int argumentCount = RegisterAccess.argumentCount(call);
+        for (int index = 0; index < argumentCount; index++) {
+            final Instruction mov = new Instruction(OpCode.Mov);
+            mov.setRegisterArg(0, Register.fromNumber(offset + 1 + index));
+            mov.setRegisterArg(1, Register.fromNumber(call.registerArg(1).number() + index));
+            instructions.add(mov);
+        }
+        final List<Instruction> inlined = withoutNilReleases(body, argumentCount);
+        final BitSet uninitialized = readBeforeWrite(inlined);
+        uninitialized.clear(1, argumentCount + 1);
+        uninitialized.stream().forEach(number -> {
+            final Instruction zero = new Instruction(OpCode.Ldc_zero);
+            zero.setRegisterArg(0, Register.fromNumber(offset + number));
+            instructions.add(zero);
+        });
+        for (final Instruction instr : inlined) {
+            instructions.add(renamed(instr, offset));
+        }
+        if (callee.type() != null) {
+            final Instruction mov = new Instruction(OpCode.Mov);
+            mov.setRegisterArg(0, call.registerArg(0));
+            mov.setRegisterArg(1, Register.fromNumber(offset));
+            instructions.add(mov);
+        }
+        return instructions;
+    }
+
+    private static Instruction renamed(Instruction instr, int offset) {
+        final Instruction copy = new Instruction(instr.opCode());
+        for (int index = 0; index < 3; index++) {
+            final Register register = instr.registerArg(index);
+            if (register != null) {
+                copy.setRegisterArg(index, Register.fromNumber(register.number() + offset));
+            }
+        }
+        copy.setSymbolArg(instr.symbolArg());
+        copy.setIntArg(instr.intArg());
+        copy.setFloatArg(instr.floatArg());
+        copy.setStrArg(instr.strArg());
+        return copy;
+    }
+
+    /**
+     * @return {@code body} without the {@link OpCode#RemoveRef}s of local variables that have not been
+     *      assigned yet, which release nil in a fresh stack frame.
+     */
+    private static List<Instruction> withoutNilReleases(List<Instruction> body, int argumentCount) {
+        final BitSet written = new BitSet();
+        written.set(0, argumentCount + 1);
+        final List<Instruction> result = new ArrayList<>(body.size());
+        for (final Instruction instr : body) {
+            if (instr.opCode() == OpCode.RemoveRef && written.get(instr.registerArg(0).number()) == false) {
+                continue;
+            }
+            result.add(instr);
+            final Register target = RegisterAccess.written(instr);
+            if (target != null) {
+                written.set(target.number());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the numbers of the registers that are read by the straight-line {@code instructions}
+     *      before they are written.
+     */
+    private static BitSet readBeforeWrite(List<Instruction> instructions) {
+        final BitSet written = new BitSet();
+        final BitSet result = new BitSet();
+        final BitSet reads = new BitSet();
+        for (final Instruction instr : instructions) {
+            reads.clear();
+            RegisterAccess.addReads(instr, reads);
+            reads.andNot(written);
+            result.or(reads);
+            final Register target = RegisterAccess.written(instr);
+            if (target != null) {
+                written.set(target.number());
+            }
+        }
+        return result;
+    }
+
+    private static int highestRegister(List<Instruction> instructions) {
+        int highest = 0;
+        for (final Instruction instr : instructions) {
+            for (int index = 0; index < 3; index++) {
+                final Register register = instr.registerArg(index);
+                if (register != null) {
+                    highest = Math.max(highest, register.number());
+                }
+            }
+            if (instr.opCode() == OpCode.Call || instr.opCode() == OpCode.CallVirt
+                    || instr.opCode() == OpCode.TailCall) {
+                highest = Math.max(highest, instr.registerArg(1).number() + RegisterAccess.argumentCount(instr) - 1);
+            }
+        }
+        return highest;
+    }
+}
@@ -2,8 +2,7 @@ package net.smackem.zlang.emit.ir;
 
 import net.smackem.zlang.symbols.Symbol;
 
-import java.util.Arrays;
-import java.util.Objects;
+import java.util.*;
 import java.util.stream.Collectors;
 
 public class Instruction {
@@ -12,6 +11,7 @@ public class Instruction {
     private Symbol symbolArg;
     private long intArg;
     private Label labelArg;
+    private List<Label> tableLabelArgs = List.of();
     private double floatArg;
     private String strArg;
     private int address;
@@ -56,6 +56,34 @@ public class Instruction {
         this.labelArg = label;
     }
 
+    /**
+     * @return the branch targets of a {@link OpCode#BrTable}, indexed by the value of its register argument.
+     */
+    public List<Label> tableLabelArgs() {
+        return Collections.unmodifiableList(this.tableLabelArgs);
+    }
+
+    void setTableLabelArgs(List<Label> labels) {
+        this.tableLabelArgs = new ArrayList<>(labels);
+    }
+
+    void setTableLabelArg(int index, Label label) {
+        this.tableLabelArgs.set(index, label);
+    }
+
+    /**
+     * @return the distinct labels this instruction may branch to, i.e. its label argument
+     *      and its table label arguments.
+     */
+    Collection<Label> branchLabels() {
+        final Set<Label> labels = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (this.labelArg != null) {
+            labels.add(this.labelArg);
+        }
+        labels.addAll(this.tableLabelArgs);
+        return labels;
+    }
+
     public double floatArg() {
         return this.floatArg;
     }
@@ -96,6 +124,9 @@ public class Instruction {
         if (labelArg != null) {
             sb.append(" symbol=").append(labelArg);
         }
+        if (tableLabelArgs.isEmpty() == false) {
+            sb.append(" table=").append(tableLabelArgs);
+        }
         if (strArg != null) {
             sb.append(" symbol=").append(strArg);
         }
@@ -20,6 +20,10 @@ public class Label {
         this.sources.add(source);
     }
 
+    void removeSource(Instruction source) {
+        this.sources.remove(source);
+    }
+
     public Instruction target() {
         return this.target;
     }
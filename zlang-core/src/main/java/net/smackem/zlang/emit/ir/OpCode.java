@@ -308,7 +308,8 @@ public enum OpCode {
     /**
      * call_virtual(REG r_target, REG r_first_arg, INT const_addr):
      *      (look at VirtualFunctionMeta at const_addr)
-     *      (look up FunctionMeta address from vtable of TypeMeta at r_first_arg [which is self])
+     *      (look up FunctionMeta address in itable of TypeMeta at r_first_arg [which is self],
+     *       at the slot denoted by VirtualFunctionMeta.itable_slot)
      *      push stack_frame(#r_target, base_pc, pc, FunctionMeta)
      *      copy arguments: registers r_first_arg..r_first_arg + FunctionMeta.arg_count
      *              to new stack frame
@@ -368,7 +369,8 @@ public enum OpCode {
 
     /**
      * equals_zero(REG r_target, REG r_source):
-     *      r_target <- r_source == 0
+     *      r_target <- r_source.i32 == 0
+     * works for bool and reference values
      */
     Eq_zero(115),
 
@@ -376,7 +378,77 @@ public enum OpCode {
      * collect()
      *      collect heap memory
      */
-    Collect(116);
+    Collect(116),
+
+    /**
+     * branch_if_false_equals(REG r_left, REG r_right, INT new_pc):
+     *      if not (r_left == r_right): pc <- new_pc
+     * fused Eq + Br_zero. the _i32 variants work for int, bool and byte values
+     */
+    Brf_eq_i32(117),
+    Brf_eq_f64(118),
+
+    /**
+     * branch_if_false_not_equals(REG r_left, REG r_right, INT new_pc):
+     *      if not (r_left != r_right): pc <- new_pc
+     */
+    Brf_ne_i32(119),
+    Brf_ne_f64(120),
+
+    /**
+     * branch_if_false_greater_than(REG r_left, REG r_right, INT new_pc):
+     *      if not (r_left > r_right): pc <- new_pc
+     */
+    Brf_gt_i32(121),
+    Brf_gt_f64(122),
+
+    /**
+     * branch_if_false_greater_equals(REG r_left, REG r_right, INT new_pc):
+     *      if not (r_left >= r_right): pc <- new_pc
+     */
+    Brf_ge_i32(123),
+    Brf_ge_f64(124),
+
+    /**
+     * branch_if_false_less_than(REG r_left, REG r_right, INT new_pc):
+     *      if not (r_left < r_right): pc <- new_pc
+     */
+    Brf_lt_i32(125),
+    Brf_lt_f64(126),
+
+    /**
+     * branch_if_false_less_equals(REG r_left, REG r_right, INT new_pc):
+     *      if not (r_left <= r_right): pc <- new_pc
+     */
+    Brf_le_i32(127),
+    Brf_le_f64(128),
+
+    /**
+     * add_immediate(REG r_target, REG r_source, INT value):
+     *      r_target <- r_source + value
+     */
+    Addi_i32(129),
+
+    /**
+     * loop_less_than(REG r_counter, REG r_step, REG r_limit, INT new_pc):
+     *      r_counter <- r_counter + r_step
+     *      if r_counter < r_limit: pc <- new_pc
+     * fused loop increment and back edge
+     */
+    Loop_lt_i32(130),
+
+    /**
+     * branch_table(REG r_index, INT count, INT new_pc_0, ... INT new_pc_count-1):
+     *      if 0 <= r_index < count: pc <- new_pc_{r_index}
+     */
+    BrTable(131),
+
+    /**
+     * tail_call(REG r_first_arg, INT const_addr):
+     *      moves arguments r_first_arg... to r1... of the current stack frame, pc <- function.pc
+     * the called function reuses the current stack frame and returns to the caller of the current function
+     */
+    TailCall(132);
 
     private final int code;
 
@@ -388,6 +460,21 @@ public enum OpCode {
         return this.code;
     }
 
+    /**
+     * @return {@code true} if this op code branches to the target of its label or falls through
+     *      to the next instruction, depending on a condition.
+     */
+    public boolean isConditionalBranch() {
+        return switch (this) {
+            case Br_zero,
+                    Brf_eq_i32, Brf_eq_f64, Brf_ne_i32, Brf_ne_f64,
+                    Brf_gt_i32, Brf_gt_f64, Brf_ge_i32, Brf_ge_f64,
+                    Brf_lt_i32, Brf_lt_f64, Brf_le_i32, Brf_le_f64,
+                    Loop_lt_i32 -> true;
+            default -> false;
+        };
+    }
+
     private static final Map<RegisterTypeId, OpCode> ldGlb = Map.of(
             RegisterTypeId.Int32, LdGlb_i32,
             RegisterTypeId.Float64, LdGlb_f64,
@@ -0,0 +1,21 @@
+package net.smackem.zlang.emit.ir;
+
+/**
+ * A transformation of the instructions of a {@link Program} that does not change its behaviour.
+ * <p>
+ *     Passes run on the program before it is frozen. They may add, remove or modify instructions
+ *     but must keep all {@link Label}s and {@link Program#functionEntries()} pointing at
+ *     instructions that are part of the program.
+ * </p>
+ */
+public interface OptimizationPass {
+    /**
+     * @return the name of this pass, used for logging and metrics.
+     */
+    String name();
+
+    /**
+     * Optimizes the instructions of the given program in place.
+     */
+    void run(Program program);
+}
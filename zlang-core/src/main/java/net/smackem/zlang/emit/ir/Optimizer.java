@@ -0,0 +1,50 @@
+package net.smackem.zlang.emit.ir;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a sequence of {@link OptimizationPass}es on the instructions of a {@link Program}.
+ */
+public final class Optimizer {
+    private static final Logger log = LoggerFactory.getLogger(Optimizer.class);
+    private final List<OptimizationPass> passes;
+
+    public Optimizer(List<OptimizationPass> passes) {
+        this.passes = List.copyOf(passes);
+    }
+
+    /**
+     * @return an {@link Optimizer} that runs the standard passes.
+     */
+    public static Optimizer standard() {
+        // collect elision and reference count elision enable each other: fewer RemoveRefs leave less
+        // garbage and fewer Collects leave more reference counts unobserved
+        return new Optimizer(List.of(new ConstantFoldingPass(), new InliningPass(), new TreeShakingPass(),
+                new CollectElisionPass(), new RefCountElisionPass(),
+                new CollectElisionPass(), new RefCountElisionPass(), new CollectElisionPass(),
+                new PeepholePass(), new RegisterAllocationPass(), new SuperinstructionPass()));
+    }
+
+    /**
+     * @return an {@link Optimizer} that leaves the code unchanged.
+     */
+    public static Optimizer none() {
+        return new Optimizer(List.of());
+    }
+
+    List<PassMetrics> optimize(Program program) {
+        final List<PassMetrics> metrics = new ArrayList<>();
+        for (final OptimizationPass pass : this.passes) {
+            final int before = program.instructions().size();
+            pass.run(program);
+            final int after = program.instructions().size();
+            log.info("{}: {} -> {} instructions", pass.name(), before, after);
+            metrics.add(new PassMetrics(pass.name(), before, after));
+        }
+        return metrics;
+    }
+}
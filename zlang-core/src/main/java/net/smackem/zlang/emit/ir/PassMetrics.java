@@ -0,0 +1,7 @@
+package net.smackem.zlang.emit.ir;
+
+/**
+ * The number of instructions of a {@link Program} before and after an {@link OptimizationPass}.
+ */
+public record PassMetrics(String passName, int instructionsBefore, int instructionsAfter) {
+}
@@ -0,0 +1,236 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.symbols.FunctionSymbol;
+
+import java.util.*;
+
+/**
+ * Removes redundant instructions emitted by the {@link EmitWalker}:
+ * <ul>
+ *     <li>{@link OpCode#Nop}s, which mark function entries and label targets</li>
+ *     <li>moves of a register to itself</li>
+ *     <li>branches to the next instruction</li>
+ *     <li>moves out of registers that are not read afterwards: {@code op t, ...; Mov x, t}
+ *          becomes {@code op x, ...}</li>
+ * </ul>
+ * Branches to unconditional branches are redirected to the final branch target.
+ * The pass is repeated until the code does not change anymore.
+ */
+public final class PeepholePass implements OptimizationPass {
+
+    @Override
+    public String name() {
+        return "peephole";
+    }
+
+    @Override
+    public void run(Program program) {
+        boolean changed;
+        do {
+            changed = threadJumps(program);
+            changed |= removeRedundantInstructions(program);
+            changed |= collapseMoves(program);
+        } while (changed);
+    }
+
+    private static boolean threadJumps(Program program) {
+        boolean changed = false;
+        for (final Instruction instr : program.instructions()) {
+            if (instr.opCode() == OpCode.BrTable) {
+                changed |= threadTableJumps(instr);
+                continue;
+            }
+            if (isBranch(instr) == false) {
+                continue;
+            }
+            final Label label = finalLabel(instr.labelArg());
+            if (label != instr.labelArg()) {
+                instr.labelArg().removeSource(instr);
+                instr.setLabelArg(label);
+                label.addSource(instr);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static boolean threadTableJumps(Instruction instr) {
+        final Collection<Label> labels = instr.branchLabels();
+        boolean changed = false;
+        for (int index = 0; index < instr.tableLabelArgs().size(); index++) {
+            final Label label = finalLabel(instr.tableLabelArgs().get(index));
+            if (label != instr.tableLabelArgs().get(index)) {
+                instr.setTableLabelArg(index, label);
+                changed = true;
+            }
+        }
+        if (changed) {
+            labels.forEach(label -> label.removeSource(instr));
+            instr.branchLabels().forEach(label -> label.addSource(instr));
+        }
+        return changed;
+    }
+
+    private static Label finalLabel(Label label) {
+        final Set<Label> visited = new HashSet<>();
+        Label current = label;
+        while (current.target().opCode() == OpCode.Br && visited.add(current)) {
+            current = current.target().labelArg();
+        }
+        return current;
+    }
+
+    /**
+     * Removes instructions that have no effect, moving labels and function entries that point at
+     * a removed instruction to the next instruction. Instructions are visited in reverse order,
+     * so the next instruction is always known to be kept.
+     */
+    private static boolean removeRedundantInstructions(Program program) {
+        final List<Instruction> instructions = program.instructions();
+        final Map<Instruction, List<Label>> labelsByTarget = new IdentityHashMap<>();
+        for (final Label label : program.labels()) {
+            if (label.target() != null) {
+                labelsByTarget.computeIfAbsent(label.target(), ignored -> new ArrayList<>()).add(label);
+            }
+        }
+        final Map<Instruction, List<FunctionSymbol>> functionsByEntry = new IdentityHashMap<>();
+        program.functionEntries().forEach((function, entry) ->
+                functionsByEntry.computeIfAbsent(entry, ignored -> new ArrayList<>()).add(function));
+
+        final List<Instruction> kept = new ArrayList<>(instructions.size());
+        Instruction successor = null;
+        for (int index = instructions.size() - 1; index >= 0; index--) {
+            final Instruction instr = instructions.get(index);
+            // never move an instruction's labels or function entry into another function
+            if (successor == null || functionsByEntry.containsKey(successor) || isRedundant(instr, successor) == false) {
+                kept.add(instr);
+                successor = instr;
+                continue;
+            }
+            for (final Label label : labelsByTarget.getOrDefault(instr, List.of())) {
+                label.setTarget(successor);
+            }
+            final List<FunctionSymbol> functions = functionsByEntry.remove(instr);
+            if (functions != null) {
+                for (final FunctionSymbol function : functions) {
+                    program.functionEntries().put(function, successor);
+                }
+                functionsByEntry.put(successor, functions);
+            }
+            if (isBranch(instr)) {
+                instr.labelArg().removeSource(instr);
+            }
+        }
+        if (kept.size() == instructions.size()) {
+            return false;
+        }
+        Collections.reverse(kept);
+        instructions.clear();
+        instructions.addAll(kept);
+        return true;
+    }
+
+    private static boolean isRedundant(Instruction instr, Instruction successor) {
+        return switch (instr.opCode()) {
+            case Nop -> true;
+            case Mov -> instr.registerArg(0) == instr.registerArg(1);
+            case Br -> instr.labelArg().target() == successor;
+            default -> instr.opCode().isConditionalBranch() && instr.labelArg().target() == successor;
+        };
+    }
+
+    /**
+     * Replaces {@code op t, ...; Mov x, t} with {@code op x, ...} if {@code t} is not read after the move.
+     * The move must not be a branch target, so that it can only be reached from {@code op}.
+     */
+    private static boolean collapseMoves(Program program) {
+        final List<Instruction> instructions = program.instructions();
+        final Map<Instruction, Integer> indexes = new IdentityHashMap<>();
+        for (int index = 0; index < instructions.size(); index++) {
+            indexes.put(instructions.get(index), index);
+        }
+        final Set<Instruction> jumpTargets = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final Label label : program.labels()) {
+            jumpTargets.add(label.target());
+        }
+        jumpTargets.addAll(program.functionEntries().values());
+
+        final Set<Instruction> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int index = 1; index < instructions.size(); index++) {
+            final Instruction instr = instructions.get(index);
+            if (instr.opCode() != OpCode.Mov || jumpTargets.contains(instr)) {
+                continue;
+            }
+            final Instruction def = instructions.get(index - 1);
+            final Register target = instr.registerArg(0);
+            final Register source = instr.registerArg(1);
+            if (removed.contains(def)
+                || source == target
+                || RegisterAccess.written(def) != source
+                || RegisterAccess.canRetarget(def, target) == false
+                || isLiveAfter(instructions, indexes, removed, index, source)) {
+                continue;
+            }
+            def.setRegisterArg(0, target);
+            removed.add(instr);
+        }
+        if (removed.isEmpty()) {
+            return false;
+        }
+        instructions.removeIf(removed::contains);
+        return true;
+    }
+
+    /**
+     * @return {@code true} if {@code register} may be read on any path starting after the instruction
+     *      at {@code index} before it is written again.
+     */
+    private static boolean isLiveAfter(List<Instruction> instructions,
+                                       Map<Instruction, Integer> indexes,
+                                       Set<Instruction> removed,
+                                       int index,
+                                       Register register) {
+        final BitSet visited = new BitSet(instructions.size());
+        final Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(index + 1);
+        while (pending.isEmpty() == false) {
+            final int current = pending.pop();
+            if (current >= instructions.size() || visited.get(current)) {
+                continue;
+            }
+            visited.set(current);
+            final Instruction instr = instructions.get(current);
+            if (removed.contains(instr)) {
+                pending.push(current + 1);
+                continue;
+            }
+            if (RegisterAccess.reads(instr, register)) {
+                return true;
+            }
+            if (RegisterAccess.written(instr) == register) {
+                continue;
+            }
+            switch (instr.opCode()) {
+                case Br -> pending.push(indexes.get(instr.labelArg().target()));
+                case BrTable -> {
+                    pending.push(current + 1);
+                    for (final Label label : instr.branchLabels()) {
+                        pending.push(indexes.get(label.target()));
+                    }
+                }
+                case Ret, Halt, TailCall -> { }
+                default -> {
+                    pending.push(current + 1);
+                    if (instr.opCode().isConditionalBranch()) {
+                        pending.push(indexes.get(instr.labelArg().target()));
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBranch(Instruction instr) {
+        return instr.opCode() == OpCode.Br || instr.opCode().isConditionalBranch();
+    }
+}
@@ -13,33 +13,54 @@ public final class Program {
     private final Collection<EmittedModule> modules;
     private final Collection<VariableSymbol> globals;
     private final Collection<Type> emittedTypes;
+    private final Map<FunctionSymbol, Instruction> functionEntries;
+    private final Set<Type> removedTypes;
+    private List<PassMetrics> optimizationMetrics = List.of();
     private Map<FunctionSymbol, FunctionCode> cachedCodeMap;
 
     private Program(List<Instruction> instructions,
                     Collection<EmittedModule> modules,
                     Collection<VariableSymbol> globals,
-                    Collection<Type> emittedTypes) {
+                    Collection<Type> emittedTypes,
+                    Map<FunctionSymbol, Instruction> functionEntries,
+                    Set<Type> removedTypes) {
         this.instructions = instructions;
         this.modules = modules;
         this.globals = globals;
         this.emittedTypes = emittedTypes;
+        this.functionEntries = functionEntries;
+        this.removedTypes = removedTypes;
     }
 
     static Program emit(Collection<EmittedModule> modules,
                         Collection<VariableSymbol> globals,
                         Collection<Type> emittedTypes) {
         final List<Instruction> instructions = new ArrayList<>();
+        final Map<FunctionSymbol, Instruction> functionEntries = new LinkedHashMap<>();
         for (final EmittedModule em : modules) {
             instructions.addAll(em.instructions());
+            functionEntries.putAll(em.codeMap());
         }
-        return new Program(instructions, modules, globals, emittedTypes);
+        return new Program(instructions, modules, globals, emittedTypes, functionEntries, new HashSet<>());
+    }
+
+    /**
+     * @return a {@link Program} without any code that only describes the given global variables and types.
+     *      Sufficient to read the global segment of a previously compiled program.
+     */
+    public static Program ofGlobals(Collection<VariableSymbol> globals, Collection<Type> emittedTypes) {
+        return emit(List.of(), globals, emittedTypes).freeze();
     }
 
     Program freeze() {
-        return new Program(Collections.unmodifiableList(this.instructions),
+        final Program program = new Program(Collections.unmodifiableList(this.instructions),
                 Collections.unmodifiableCollection(this.modules),
                 Collections.unmodifiableCollection(this.globals),
-                Collections.unmodifiableCollection(this.emittedTypes));
+                Collections.unmodifiableCollection(this.emittedTypes),
+                Collections.unmodifiableMap(this.functionEntries),
+                Collections.unmodifiableSet(this.removedTypes));
+        program.optimizationMetrics = this.optimizationMetrics;
+        return program;
     }
 
     public List<Instruction> instructions() {
@@ -49,6 +70,7 @@ public final class Program {
     public Collection<Type> types() {
         return Stream.concat(this.modules.stream().flatMap(m -> m.types().stream()),
                 this.emittedTypes.stream())
+                .filter(type -> this.removedTypes.contains(type) == false)
                 .toList();
     }
 
@@ -64,23 +86,167 @@ public final class Program {
 
     public Map<FunctionSymbol, FunctionCode> codeMap() {
         if (this.cachedCodeMap == null) {
-            this.cachedCodeMap = this.modules.stream()
-                    .flatMap(em -> em.codeMap().entrySet().stream()
-                            .map(entry -> Map.entry(entry.getKey(),
-                                    new FunctionCode(entry.getValue()))))
-                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            this.cachedCodeMap = this.functionEntries.entrySet().stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, entry -> new FunctionCode(entry.getValue()),
+                            (a, b) -> a, LinkedHashMap::new));
         }
         return this.cachedCodeMap;
     }
 
+    /**
+     * @return the first instruction of each function. Modifiable until the program is frozen,
+     *      so that optimization passes can remove function entry instructions.
+     */
+    Map<FunctionSymbol, Instruction> functionEntries() {
+        return this.functionEntries;
+    }
+
+    /**
+     * @return the instructions of each function, from its entry up to the entry of the next function.
+     */
+    Map<FunctionSymbol, List<Instruction>> functionBodies() {
+        final Map<Instruction, Integer> indexes = new IdentityHashMap<>();
+        for (int index = 0; index < this.instructions.size(); index++) {
+            indexes.put(this.instructions.get(index), index);
+        }
+        final int[] entryIndexes = this.functionEntries.values().stream()
+                .mapToInt(indexes::get)
+                .sorted()
+                .distinct()
+                .toArray();
+        final Map<FunctionSymbol, List<Instruction>> bodies = new LinkedHashMap<>();
+        this.functionEntries.forEach((function, entry) -> {
+            final int start = indexes.get(entry);
+            final int next = Arrays.binarySearch(entryIndexes, start) + 1;
+            final int end = next < entryIndexes.length ? entryIndexes[next] : this.instructions.size();
+            bodies.put(function, this.instructions.subList(start, end));
+        });
+        return bodies;
+    }
+
+    /**
+     * Excludes the given types from {@link #types()}, so that no type meta data is written for them.
+     */
+    void removeTypes(Collection<Type> types) {
+        this.removedTypes.addAll(types);
+    }
+
+    /**
+     * Replaces each key of {@code replacements} with the associated instruction.
+     * Labels and function entries that point at a replaced instruction point at its replacement afterwards.
+     * Branch instructions are registered as sources of their labels.
+     */
+    void replaceInstructions(Map<Instruction, Instruction> replacements) {
+        if (replacements.isEmpty()) {
+            return;
+        }
+        this.instructions.replaceAll(instr -> replacements.getOrDefault(instr, instr));
+        for (final Label label : labels()) {
+            final Instruction replacement = replacements.get(label.target());
+            if (replacement != null) {
+                label.setTarget(replacement);
+            }
+        }
+        this.functionEntries.replaceAll((function, entry) -> replacements.getOrDefault(entry, entry));
+        replacements.forEach((instr, replacement) -> {
+            for (final Label label : instr.branchLabels()) {
+                label.removeSource(instr);
+            }
+            for (final Label label : replacement.branchLabels()) {
+                label.addSource(replacement);
+            }
+        });
+    }
+
+    /**
+     * Replaces each key of {@code expansions} with the associated non-empty sequence of instructions.
+     * Labels and function entries that point at a replaced instruction point at the first instruction
+     * of its expansion afterwards. The expansions must not contain branch instructions.
+     */
+    void expandInstructions(Map<Instruction, List<Instruction>> expansions) {
+        if (expansions.isEmpty()) {
+            return;
+        }
+        final List<Instruction> expanded = new ArrayList<>(this.instructions.size());
+        for (final Instruction instr : this.instructions) {
+            final List<Instruction> expansion = expansions.get(instr);
+            if (expansion != null) {
+                expanded.addAll(expansion);
+            } else {
+                expanded.add(instr);
+            }
+        }
+        this.instructions.clear();
+        this.instructions.addAll(expanded);
+        for (final Label label : labels()) {
+            final List<Instruction> expansion = expansions.get(label.target());
+            if (expansion != null) {
+                label.setTarget(expansion.get(0));
+            }
+        }
+        this.functionEntries.replaceAll((function, entry) ->
+                expansions.containsKey(entry) ? expansions.get(entry).get(0) : entry);
+    }
+
+    /**
+     * Removes the given instructions. Labels and function entries that point at a removed instruction
+     * point at the next remaining instruction afterwards.
+     */
+    void removeInstructions(Set<Instruction> removed) {
+        if (removed.isEmpty()) {
+            return;
+        }
+        final Map<Instruction, Instruction> successors = new HashMap<>();
+        Instruction successor = null;
+        for (int index = this.instructions.size() - 1; index >= 0; index--) {
+            final Instruction instr = this.instructions.get(index);
+            if (removed.contains(instr)) {
+                successors.put(instr, successor);
+                for (final Label label : instr.branchLabels()) {
+                    label.removeSource(instr);
+                }
+            } else {
+                successor = instr;
+            }
+        }
+        this.instructions.removeIf(removed::contains);
+        for (final Label label : labels()) {
+            if (successors.containsKey(label.target())) {
+                label.setTarget(successors.get(label.target()));
+            }
+        }
+        this.functionEntries.replaceAll((function, entry) -> successors.getOrDefault(entry, entry));
+    }
+
+    /**
+     * @return the instruction counts before and after each optimization pass that has been run
+     *      on this program.
+     */
+    public List<PassMetrics> optimizationMetrics() {
+        return this.optimizationMetrics;
+    }
+
+    void setOptimizationMetrics(List<PassMetrics> optimizationMetrics) {
+        this.optimizationMetrics = List.copyOf(optimizationMetrics);
+    }
+
     public FunctionSymbol entryPoint() {
-        return this.modules.stream()
-                .flatMap(em -> em.codeMap().keySet().stream())
+        return this.functionEntries.keySet().stream()
                 .filter(f -> Objects.equals(f.name(), "main"))
                 .findFirst()
                 .orElseThrow();
     }
 
+    /**
+     * @return a new label that points at {@code target}, for branches created by optimization passes.
+     */
+    Label addLabel(Instruction target) {
+        final Label label = new Label();
+        label.setTarget(target);
+        this.modules.iterator().next().labels().add(label);
+        return label;
+    }
+
     public Collection<Label> labels() {
         return this.modules.stream()
                 .flatMap(f -> f.labels().stream())
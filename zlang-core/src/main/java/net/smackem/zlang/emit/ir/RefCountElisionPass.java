@@ -0,0 +1,151 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.symbols.BuiltInFunction;
+import net.smackem.zlang.symbols.FunctionSymbol;
+
+import java.util.*;
+
+/**
+ * Removes balanced {@link OpCode#AddRef}/{@link OpCode#RemoveRef} pairs that only protect a borrowed
+ * reference, like the reference counting of parameters on function entry and exit or of locals
+ * that do not escape.
+ * <p>
+ *     An {@code AddRef r} and a {@code RemoveRef r} are removed together if every path from the
+ *     {@code AddRef} leads to the {@code RemoveRef}, every path to the {@code RemoveRef} comes from the
+ *     {@code AddRef} and nothing in between depends on the reference count of the object in {@code r}:
+ * </p>
+ * <ul>
+ *     <li>{@code r} is not written, so both instructions refer to the same object</li>
+ *     <li>no {@link OpCode#Collect} can be executed, directly or by a called function, so the object
+ *          cannot be freed even if its reference count drops to zero</li>
+ *     <li>no field or element is stored and no list is modified, so the object graph that is
+ *          released together with the object stays the same</li>
+ *     <li>the function is not left, so the count cannot be observed after a {@code panic}</li>
+ * </ul>
+ */
+public final class RefCountElisionPass implements OptimizationPass {
+
+    @Override
+    public String name() {
+        return "refcount-elision";
+    }
+
+    @Override
+    public void run(Program program) {
+        final FlowGraph graph = new FlowGraph(program.instructions());
+        final Set<FunctionSymbol> transparentFunctions = transparentFunctions(program.functionBodies());
+        final Set<Instruction> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int index = 0; index < graph.size(); index++) {
+            if (graph.instruction(index).opCode() != OpCode.AddRef) {
+                continue;
+            }
+            final int release = matchingRelease(graph, index, transparentFunctions, removed);
+            if (release >= 0) {
+                removed.add(graph.instruction(index));
+                removed.add(graph.instruction(release));
+            }
+        }
+        program.removeInstructions(removed);
+    }
+
+    /**
+     * @return the index of the {@code RemoveRef} that balances the {@code AddRef} at {@code addRefIndex}
+     *      or {@code -1} if the pair cannot be removed.
+     */
+    private static int matchingRelease(FlowGraph graph, int addRefIndex, Set<FunctionSymbol> transparentFunctions,
+                                       Set<Instruction> removed) {
+        final Register register = graph.instruction(addRefIndex).registerArg(0);
+        final BitSet region = new BitSet(graph.size());
+        final Deque<Integer> worklist = new ArrayDeque<>();
+        int release = -1;
+        pushAll(worklist, graph.successors(addRefIndex));
+        while (worklist.isEmpty() == false) {
+            final int index = worklist.pop();
+            if (index == addRefIndex) {
+                return -1;
+            }
+            if (index == release || region.get(index)) {
+                continue;
+            }
+            final Instruction instr = graph.instruction(index);
+            if (instr.opCode() == OpCode.RemoveRef
+                    && instr.registerArg(0) == register
+                    && removed.contains(instr) == false) {
+                if (release >= 0) {
+                    return -1;
+                }
+                release = index;
+                continue;
+            }
+            if (graph.successors(index).length == 0
+                    || mayWrite(instr, register)
+                    || dependsOnRefCounts(instr, transparentFunctions)) {
+                return -1;
+            }
+            region.set(index);
+            pushAll(worklist, graph.successors(index));
+        }
+        if (release < 0) {
+            return -1;
+        }
+
+        // all paths to the release must come through the region
+        final BitSet visited = new BitSet(graph.size());
+        pushAll(worklist, graph.predecessors(release));
+        while (worklist.isEmpty() == false) {
+            final int index = worklist.pop();
+            if (index == addRefIndex || visited.get(index)) {
+                continue;
+            }
+            if (region.get(index) == false) {
+                return -1;
+            }
+            visited.set(index);
+            pushAll(worklist, graph.predecessors(index));
+        }
+        return release;
+    }
+
+    /**
+     * @return the functions that neither collect nor modify the heap, directly or through
+     *      the functions they call.
+     */
+    private static Set<FunctionSymbol> transparentFunctions(Map<FunctionSymbol, List<Instruction>> bodies) {
+        final Set<FunctionSymbol> transparent = new HashSet<>(bodies.keySet());
+        boolean changed;
+        do {
+            changed = transparent.removeIf(function -> bodies.get(function).stream()
+                    .anyMatch(instr -> instr.opCode() == OpCode.Halt
+                                       || dependsOnRefCounts(instr, transparent)));
+        } while (changed);
+        return transparent;
+    }
+
+    private static boolean dependsOnRefCounts(Instruction instr, Set<FunctionSymbol> transparentFunctions) {
+        return switch (instr.opCode()) {
+            case Collect, CallVirt,
+                    StFld_i32, StFld_f64, StFld_u8, StFld_ref, StFld_ptr,
+                    StElem_i32, StElem_f64, StElem_u8, StElem_ref, StElem_ptr -> true;
+            case Call, TailCall -> transparentFunctions.contains((FunctionSymbol) instr.symbolArg()) == false;
+            case Invoke -> modifiesList((FunctionSymbol) instr.symbolArg());
+            default -> false;
+        };
+    }
+
+    private static boolean modifiesList(FunctionSymbol builtIn) {
+        return builtIn.address() == BuiltInFunction.LIST_ADD.address()
+               || builtIn.address() == BuiltInFunction.LIST_REMOVE.address();
+    }
+
+    private static boolean mayWrite(Instruction instr, Register register) {
+        // built-in functions without return value are reported as not writing their target
+        return RegisterAccess.written(instr) == register
+               || instr.opCode() == OpCode.Invoke && instr.registerArg(0) == register;
+    }
+
+    private static void pushAll(Deque<Integer> worklist, int[] indexes) {
+        for (final int index : indexes) {
+            worklist.push(index);
+        }
+    }
+}
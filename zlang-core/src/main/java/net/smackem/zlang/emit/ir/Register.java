@@ -64,8 +64,201 @@ public enum Register {
     R060(60),
     R061(61),
     R062(62),
-    R063(63);
+    R063(63),
+    R064(64),
+    R065(65),
+    R066(66),
+    R067(67),
+    R068(68),
+    R069(69),
+    R070(70),
+    R071(71),
+    R072(72),
+    R073(73),
+    R074(74),
+    R075(75),
+    R076(76),
+    R077(77),
+    R078(78),
+    R079(79),
+    R080(80),
+    R081(81),
+    R082(82),
+    R083(83),
+    R084(84),
+    R085(85),
+    R086(86),
+    R087(87),
+    R088(88),
+    R089(89),
+    R090(90),
+    R091(91),
+    R092(92),
+    R093(93),
+    R094(94),
+    R095(95),
+    R096(96),
+    R097(97),
+    R098(98),
+    R099(99),
+    R100(100),
+    R101(101),
+    R102(102),
+    R103(103),
+    R104(104),
+    R105(105),
+    R106(106),
+    R107(107),
+    R108(108),
+    R109(109),
+    R110(110),
+    R111(111),
+    R112(112),
+    R113(113),
+    R114(114),
+    R115(115),
+    R116(116),
+    R117(117),
+    R118(118),
+    R119(119),
+    R120(120),
+    R121(121),
+    R122(122),
+    R123(123),
+    R124(124),
+    R125(125),
+    R126(126),
+    R127(127),
+    R128(128),
+    R129(129),
+    R130(130),
+    R131(131),
+    R132(132),
+    R133(133),
+    R134(134),
+    R135(135),
+    R136(136),
+    R137(137),
+    R138(138),
+    R139(139),
+    R140(140),
+    R141(141),
+    R142(142),
+    R143(143),
+    R144(144),
+    R145(145),
+    R146(146),
+    R147(147),
+    R148(148),
+    R149(149),
+    R150(150),
+    R151(151),
+    R152(152),
+    R153(153),
+    R154(154),
+    R155(155),
+    R156(156),
+    R157(157),
+    R158(158),
+    R159(159),
+    R160(160),
+    R161(161),
+    R162(162),
+    R163(163),
+    R164(164),
+    R165(165),
+    R166(166),
+    R167(167),
+    R168(168),
+    R169(169),
+    R170(170),
+    R171(171),
+    R172(172),
+    R173(173),
+    R174(174),
+    R175(175),
+    R176(176),
+    R177(177),
+    R178(178),
+    R179(179),
+    R180(180),
+    R181(181),
+    R182(182),
+    R183(183),
+    R184(184),
+    R185(185),
+    R186(186),
+    R187(187),
+    R188(188),
+    R189(189),
+    R190(190),
+    R191(191),
+    R192(192),
+    R193(193),
+    R194(194),
+    R195(195),
+    R196(196),
+    R197(197),
+    R198(198),
+    R199(199),
+    R200(200),
+    R201(201),
+    R202(202),
+    R203(203),
+    R204(204),
+    R205(205),
+    R206(206),
+    R207(207),
+    R208(208),
+    R209(209),
+    R210(210),
+    R211(211),
+    R212(212),
+    R213(213),
+    R214(214),
+    R215(215),
+    R216(216),
+    R217(217),
+    R218(218),
+    R219(219),
+    R220(220),
+    R221(221),
+    R222(222),
+    R223(223),
+    R224(224),
+    R225(225),
+    R226(226),
+    R227(227),
+    R228(228),
+    R229(229),
+    R230(230),
+    R231(231),
+    R232(232),
+    R233(233),
+    R234(234),
+    R235(235),
+    R236(236),
+    R237(237),
+    R238(238),
+    R239(239),
+    R240(240),
+    R241(241),
+    R242(242),
+    R243(243),
+    R244(244),
+    R245(245),
+    R246(246),
+    R247(247),
+    R248(248),
+    R249(249),
+    R250(250),
+    R251(251),
+    R252(252),
+    R253(253),
+    R254(254),
+    R255(255);
 
+    private static final Register[] VALUES = values();
     private final int number;
 
     Register(int number) {
@@ -76,12 +269,18 @@ public enum Register {
         return this.number;
     }
 
+    /**
+     * @return the number of registers available to a function.
+     */
+    public static int count() {
+        return VALUES.length;
+    }
+
     public static Register fromNumber(int number) {
-        final Register[] registers = values();
-        if (number < 0 || number >= registers.length) {
+        if (number < 0 || number >= VALUES.length) {
             throw new IllegalArgumentException("register number out of range");
         }
-        return registers[number];
+        return VALUES[number];
     }
 
     public Register next() {
@@ -0,0 +1,162 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.symbols.FunctionSymbol;
+
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Describes which registers an {@link Instruction} reads and writes.
+ * <p>
+ *     Reads are over-approximated: an instruction may be reported to read a register it does not
+ *     actually read. Writes are under-approximated: only registers that are written on every execution
+ *     of the instruction are reported. Both keeps analyses based on this class conservative.
+ * </p>
+ */
+final class RegisterAccess {
+
+    private RegisterAccess() { }
+
+    /**
+     * Op codes that read all source registers before writing the target register, so that
+     * the target register may also be one of the source registers.
+     */
+    private static final Set<OpCode> sourcesReadBeforeWrite = EnumSet.of(
+            OpCode.Mov,
+            OpCode.Add_i32, OpCode.Add_f64, OpCode.Add_u8,
+            OpCode.Sub_i32, OpCode.Sub_f64, OpCode.Sub_u8,
+            OpCode.Mul_i32, OpCode.Mul_f64, OpCode.Mul_u8,
+            OpCode.Div_i32, OpCode.Div_f64, OpCode.Div_u8,
+            OpCode.Mod_i32, OpCode.Mod_f64, OpCode.Mod_u8,
+            OpCode.Eq_i32, OpCode.Eq_f64, OpCode.Eq_u8, OpCode.Eq_ref, OpCode.Eq_ptr,
+            OpCode.Ne_i32, OpCode.Ne_f64, OpCode.Ne_u8, OpCode.Ne_ref, OpCode.Ne_ptr,
+            OpCode.Gt_i32, OpCode.Gt_f64, OpCode.Gt_u8,
+            OpCode.Ge_i32, OpCode.Ge_f64, OpCode.Ge_u8,
+            OpCode.Lt_i32, OpCode.Lt_f64, OpCode.Lt_u8,
+            OpCode.Le_i32, OpCode.Le_f64, OpCode.Le_u8,
+            OpCode.And, OpCode.Or,
+            OpCode.Band_i32, OpCode.Band_u8,
+            OpCode.Bor_i32, OpCode.Bor_u8,
+            OpCode.Xor_i32, OpCode.Xor_u8,
+            OpCode.LShift_i32, OpCode.LShift_u8,
+            OpCode.RShift_i32, OpCode.RShift_u8,
+            OpCode.Eq_zero, OpCode.Addi_i32);
+
+    /**
+     * @return {@code true} if {@code instr} may read {@code register}.
+     */
+    static boolean reads(Instruction instr, Register register) {
+        final BitSet registers = new BitSet();
+        addReads(instr, registers);
+        return registers.get(register.number());
+    }
+
+    /**
+     * Adds the numbers of all registers that may be read by {@code instr} to {@code registers}.
+     */
+    static void addReads(Instruction instr, BitSet registers) {
+        switch (instr.opCode()) {
+            case Ret, Halt -> {
+                // the return value or exit code
+                registers.set(Register.R000.number());
+                return;
+            }
+            case TailCall -> {
+                final int firstArgument = instr.registerArg(1).number();
+                registers.set(firstArgument, firstArgument + argumentCount(instr));
+                return;
+            }
+            case Call, CallVirt, Invoke -> {
+                final int firstArgument = instr.registerArg(1).number();
+                registers.set(firstArgument, firstArgument + argumentCount(instr));
+                if (written(instr) == null) {
+                    registers.set(instr.registerArg(0).number());
+                }
+                return;
+            }
+        }
+        if (written(instr) == null && instr.registerArg(0) != null) {
+            registers.set(instr.registerArg(0).number());
+        }
+        for (int index = 1; index <= 2; index++) {
+            if (instr.registerArg(index) != null) {
+                registers.set(instr.registerArg(index).number());
+            }
+        }
+    }
+
+    /**
+     * @return the register that is written by every execution of {@code instr}
+     *      or {@code null} if there is no such register.
+     */
+    static Register written(Instruction instr) {
+        if (instr.opCode() == OpCode.Invoke) {
+            // built-in functions write the target register only if they return a value
+            return ((FunctionSymbol) instr.symbolArg()).type() != null ? instr.registerArg(0) : null;
+        }
+        return writesTarget(instr.opCode()) ? instr.registerArg(0) : null;
+    }
+
+    /**
+     * @return the number of consecutive registers, starting with the first argument register,
+     *      that are passed to the function called by {@code instr}.
+     */
+    static int argumentCount(Instruction instr) {
+        return ((FunctionSymbol) instr.symbolArg()).symbols().size();
+    }
+
+    /**
+     * @return {@code true} if {@code instr} reads all source registers before writing the target register.
+     */
+    static boolean readsBeforeWrite(Instruction instr) {
+        return sourcesReadBeforeWrite.contains(instr.opCode());
+    }
+
+    /**
+     * @return {@code true} if the target register of {@code instr} may be replaced by {@code register}
+     *      without changing the values of the source registers read by {@code instr}.
+     */
+    static boolean canRetarget(Instruction instr, Register register) {
+        return written(instr) != null
+               && (readsBeforeWrite(instr) || reads(instr, register) == false);
+    }
+
+    private static boolean writesTarget(OpCode opCode) {
+        return switch (opCode) {
+            case LdGlb_i32, LdGlb_f64, LdGlb_u8, LdGlb_ref, LdGlb_ptr,
+                    LdFld_i32, LdFld_f64, LdFld_u8, LdFld_ref, LdFld_ptr,
+                    LdElem_i32, LdElem_f64, LdElem_u8, LdElem_ref, LdElem_ptr,
+                    Ldc_i32, Ldc_str, Ldc_f64, Ldc_zero,
+                    Add_i32, Add_f64, Add_u8, Add_str,
+                    Sub_i32, Sub_f64, Sub_u8,
+                    Mul_i32, Mul_f64, Mul_u8,
+                    Div_i32, Div_f64, Div_u8,
+                    Mod_i32, Mod_f64, Mod_u8,
+                    Eq_i32, Eq_f64, Eq_u8, Eq_str, Eq_ref, Eq_ptr,
+                    Ne_i32, Ne_f64, Ne_u8, Ne_str, Ne_ref, Ne_ptr,
+                    Gt_i32, Gt_f64, Gt_u8, Gt_str,
+                    Ge_i32, Ge_f64, Ge_u8, Ge_str,
+                    Lt_i32, Lt_f64, Lt_u8, Lt_str,
+                    Le_i32, Le_f64, Le_u8, Le_str,
+                    And, Or,
+                    Band_i32, Band_u8, Bor_i32, Bor_u8, Xor_i32, Xor_u8,
+                    LShift_i32, LShift_u8, RShift_i32, RShift_u8,
+                    Eq_zero, Mov, Addi_i32,
+                    Conv_i32, Conv_f64, Conv_u8, Conv_str, Conv_ref, Conv_ptr,
+                    NewObj, NewStr,
+                    NewArr_i32, NewArr_f64, NewArr_u8, NewArr_ref, NewArr_ptr,
+                    TypeChk, Call, CallVirt -> true;
+            case Nop,
+                    StGlb_i32, StGlb_f64, StGlb_u8, StGlb_ref, StGlb_ptr,
+                    StFld_i32, StFld_f64, StFld_u8, StFld_ref, StFld_ptr,
+                    StElem_i32, StElem_f64, StElem_u8, StElem_ref, StElem_ptr,
+                    Br_zero, Br, Ret, Halt, AddRef, RemoveRef, Invoke, Collect,
+                    Brf_eq_i32, Brf_eq_f64, Brf_ne_i32, Brf_ne_f64,
+                    Brf_gt_i32, Brf_gt_f64, Brf_ge_i32, Brf_ge_f64,
+                    Brf_lt_i32, Brf_lt_f64, Brf_le_i32, Brf_le_f64, BrTable, TailCall -> false;
+            // the loop counter is both read and written: report it as read only
+            case Loop_lt_i32 -> false;
+        };
+    }
+}
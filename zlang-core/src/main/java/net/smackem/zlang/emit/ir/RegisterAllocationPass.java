@@ -0,0 +1,390 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.symbols.FunctionSymbol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Reassigns the registers of each function with a linear scan over live intervals, so that values
+ * with disjoint lifetimes share registers and each stack frame needs as few registers as possible.
+ * <p>
+ *     The {@link EmitWalker} gives each local variable its own register for the whole function and
+ *     allocates temporary registers above the locals. This pass splits the uses of each register into
+ *     live ranges (all definitions and uses connected by reaching definitions), computes the interval
+ *     of instructions each live range spans and assigns the lowest register that is free for the whole
+ *     interval, visiting the intervals ordered by start.
+ * </p>
+ * <p>
+ *     {@link Register#R000} and the parameter registers keep their numbers. The argument registers of
+ *     a call are allocated together, so that they stay consecutive. Functions that do not meet these
+ *     constraints are left unchanged. Moves that end up copying a register to itself are removed.
+ * </p>
+ */
+public final class RegisterAllocationPass implements OptimizationPass {
+    private static final Logger log = LoggerFactory.getLogger(RegisterAllocationPass.class);
+
+    @Override
+    public String name() {
+        return "register-allocation";
+    }
+
+    @Override
+    public void run(Program program) {
+        program.functionBodies().forEach((function, body) -> {
+            final Allocation allocation = new Allocation(function, body);
+            if (allocation.run() == false) {
+                log.info("{}: registers left unchanged", function.name());
+            }
+        });
+        final Set<Instruction> selfMoves = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final Instruction instr : program.instructions()) {
+            if (instr.opCode() == OpCode.Mov && instr.registerArg(0) == instr.registerArg(1)) {
+                selfMoves.add(instr);
+            }
+        }
+        program.removeInstructions(selfMoves);
+    }
+
+    /**
+     * A set of definitions and uses of a register that have to be assigned the same register,
+     * together with the positions it spans. Position {@code 2 * i} is before instruction {@code i}
+     * is executed, {@code 2 * i + 1} is after.
+     */
+    private static final class LiveRange {
+        int start = Integer.MAX_VALUE;
+        int end = Integer.MIN_VALUE;
+        List<LiveRange> group;
+        Register assigned;
+
+        void include(int position) {
+            this.start = Math.min(this.start, position);
+            this.end = Math.max(this.end, position);
+        }
+    }
+
+    private static final class Allocation {
+        private final List<Instruction> instructions;
+        private final FlowGraph graph;
+        private final int fixedRegisterCount;
+        private final List<Definition> definitions = new ArrayList<>();
+        private final Map<Register, BitSet> definitionsByRegister = new EnumMap<>(Register.class);
+        private BitSet[] reachingIn;
+        private int[] parents;
+
+        private record Definition(int index, Register register) { }
+
+        Allocation(FunctionSymbol function, List<Instruction> instructions) {
+            this.instructions = instructions;
+            this.graph = new FlowGraph(instructions);
+            // R000 and parameters
+            this.fixedRegisterCount = function.symbols().size() + 1;
+        }
+
+        /**
+         * @return {@code false} if the registers of the function could not be reassigned.
+         */
+        boolean run() {
+            collectDefinitions();
+            computeReachingDefinitions();
+            final LiveRange[][] readRanges = new LiveRange[this.instructions.size()][];
+            final LiveRange[] writtenRanges = new LiveRange[this.instructions.size()];
+            final Collection<LiveRange> ranges = buildLiveRanges(readRanges, writtenRanges);
+            if (groupArguments(readRanges) == false || assignRegisters(ranges) == false) {
+                return false;
+            }
+            final List<Register[]> rewritten = new ArrayList<>(this.instructions.size());
+            for (int index = 0; index < this.instructions.size(); index++) {
+                final Register[] registers = rewrite(this.instructions.get(index), readRanges[index], writtenRanges[index]);
+                if (registers == null) {
+                    return false;
+                }
+                rewritten.add(registers);
+            }
+            for (int index = 0; index < this.instructions.size(); index++) {
+                final Register[] registers = rewritten.get(index);
+                for (int slot = 0; slot < registers.length; slot++) {
+                    this.instructions.get(index).setRegisterArg(slot, registers[slot]);
+                }
+            }
+            return true;
+        }
+
+        private boolean isFixed(Register register) {
+            return register.number() < this.fixedRegisterCount;
+        }
+
+        /**
+         * Collects the definitions of all registers that are not fixed. Each register also gets
+         * a definition at function entry, which stands for its value when the function is called.
+         */
+        private void collectDefinitions() {
+            final BitSet accessed = new BitSet();
+            for (int index = 0; index < this.instructions.size(); index++) {
+                accessed.or(reads(index));
+                final Register written = RegisterAccess.written(this.instructions.get(index));
+                if (written != null) {
+                    accessed.set(written.number());
+                }
+            }
+            accessed.clear(0, this.fixedRegisterCount);
+            for (int number = accessed.nextSetBit(0); number >= 0; number = accessed.nextSetBit(number + 1)) {
+                addDefinition(-1, Register.fromNumber(number));
+            }
+            for (int index = 0; index < this.instructions.size(); index++) {
+                final Register written = RegisterAccess.written(this.instructions.get(index));
+                if (written != null && isFixed(written) == false) {
+                    addDefinition(index, written);
+                }
+            }
+            this.parents = new int[this.definitions.size()];
+            for (int id = 0; id < this.parents.length; id++) {
+                this.parents[id] = id;
+            }
+        }
+
+        private void addDefinition(int index, Register register) {
+            this.definitionsByRegister.computeIfAbsent(register, ignored -> new BitSet()).set(this.definitions.size());
+            this.definitions.add(new Definition(index, register));
+        }
+
+        private void computeReachingDefinitions() {
+            final int size = this.instructions.size();
+            final BitSet[] out = new BitSet[size];
+            this.reachingIn = new BitSet[size];
+            final BitSet entryDefinitions = new BitSet();
+            for (int id = 0; id < this.definitions.size(); id++) {
+                if (this.definitions.get(id).index() < 0) {
+                    entryDefinitions.set(id);
+                }
+            }
+            for (int index = 0; index < size; index++) {
+                this.reachingIn[index] = new BitSet();
+                out[index] = new BitSet();
+            }
+            boolean changed;
+            do {
+                changed = false;
+                for (int index = 0; index < size; index++) {
+                    final BitSet in = this.reachingIn[index];
+                    if (index == 0) {
+                        in.or(entryDefinitions);
+                    }
+                    for (final int predecessor : this.graph.predecessors(index)) {
+                        in.or(out[predecessor]);
+                    }
+                    final BitSet result = (BitSet) in.clone();
+                    final Register written = RegisterAccess.written(this.instructions.get(index));
+                    if (written != null && isFixed(written) == false) {
+                        result.andNot(this.definitionsByRegister.get(written));
+                        result.set(definitionAt(index));
+                    }
+                    if (result.equals(out[index]) == false) {
+                        out[index] = result;
+                        changed = true;
+                    }
+                }
+            } while (changed);
+        }
+
+        private int definitionAt(int index) {
+            final BitSet ids = this.definitionsByRegister.get(RegisterAccess.written(this.instructions.get(index)));
+            for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+                if (this.definitions.get(id).index() == index) {
+                    return id;
+                }
+            }
+            throw new IllegalStateException("no definition at " + index);
+        }
+
+        /**
+         * @return the definitions of {@code register} that reach instruction {@code index}
+         *      or the entry definition if there is none (only in unreachable code).
+         */
+        private BitSet reaching(int index, Register register) {
+            final BitSet ids = (BitSet) this.definitionsByRegister.get(register).clone();
+            ids.and(this.reachingIn[index]);
+            if (ids.isEmpty()) {
+                ids.set(this.definitionsByRegister.get(register).nextSetBit(0));
+            }
+            return ids;
+        }
+
+        private int find(int id) {
+            while (this.parents[id] != id) {
+                this.parents[id] = this.parents[this.parents[id]];
+                id = this.parents[id];
+            }
+            return id;
+        }
+
+        private void union(int a, int b) {
+            this.parents[find(a)] = find(b);
+        }
+
+        private Collection<LiveRange> buildLiveRanges(LiveRange[][] readRanges, LiveRange[] writtenRanges) {
+            final int size = this.instructions.size();
+            // all reaching definitions of a read register belong to the same live range
+            for (int index = 0; index < size; index++) {
+                final BitSet reads = reads(index);
+                for (int number = reads.nextSetBit(0); number >= 0; number = reads.nextSetBit(number + 1)) {
+                    final BitSet ids = reaching(index, Register.fromNumber(number));
+                    final int first = ids.nextSetBit(0);
+                    for (int id = ids.nextSetBit(first + 1); id >= 0; id = ids.nextSetBit(id + 1)) {
+                        union(first, id);
+                    }
+                }
+            }
+            final Map<Integer, LiveRange> rangesByRoot = new LinkedHashMap<>();
+            final BitSet[] liveOut = this.graph.liveOut();
+            for (int index = 0; index < size; index++) {
+                final Instruction instr = this.instructions.get(index);
+                final BitSet reads = reads(index);
+                readRanges[index] = new LiveRange[Register.values().length];
+                for (int number = reads.nextSetBit(0); number >= 0; number = reads.nextSetBit(number + 1)) {
+                    final LiveRange range = liveRange(rangesByRoot, reaching(index, Register.fromNumber(number)).nextSetBit(0));
+                    range.include(2 * index);
+                    readRanges[index][number] = range;
+                }
+                final Register written = RegisterAccess.written(instr);
+                if (written != null && isFixed(written) == false) {
+                    final LiveRange range = liveRange(rangesByRoot, definitionAt(index));
+                    range.include(RegisterAccess.readsBeforeWrite(instr) ? 2 * index + 1 : 2 * index);
+                    writtenRanges[index] = range;
+                }
+                final BitSet live = liveOut[index];
+                for (int number = live.nextSetBit(0); number >= 0; number = live.nextSetBit(number + 1)) {
+                    final Register register = Register.fromNumber(number);
+                    if (isFixed(register)) {
+                        continue;
+                    }
+                    final LiveRange range = register == written
+                            ? writtenRanges[index]
+                            : liveRange(rangesByRoot, reaching(index, register).nextSetBit(0));
+                    range.include(2 * index + 1);
+                    if (register != written) {
+                        range.include(2 * index); // live through the instruction
+                    }
+                }
+            }
+            return rangesByRoot.values();
+        }
+
+        private BitSet reads(int index) {
+            final BitSet reads = new BitSet();
+            RegisterAccess.addReads(this.instructions.get(index), reads);
+            reads.clear(0, this.fixedRegisterCount);
+            return reads;
+        }
+
+        private LiveRange liveRange(Map<Integer, LiveRange> rangesByRoot, int id) {
+            return rangesByRoot.computeIfAbsent(find(id), root -> new LiveRange());
+        }
+
+        /**
+         * Groups the argument registers of each call.
+         * @return {@code false} if a live range is passed as argument to different calls in different
+         *      positions or more than once to the same call.
+         */
+        private boolean groupArguments(LiveRange[][] readRanges) {
+            for (int index = 0; index < this.instructions.size(); index++) {
+                final Instruction instr = this.instructions.get(index);
+                if (isCall(instr.opCode()) == false) {
+                    continue;
+                }
+                final int argumentCount = RegisterAccess.argumentCount(instr);
+                if (argumentCount == 0) {
+                    continue;
+                }
+                final int firstArgument = instr.registerArg(1).number();
+                if (firstArgument < this.fixedRegisterCount) {
+                    return false;
+                }
+                final List<LiveRange> group = new ArrayList<>();
+                for (int offset = 0; offset < argumentCount; offset++) {
+                    final LiveRange range = readRanges[index][firstArgument + offset];
+                    if (range == null || group.contains(range)) {
+                        return false;
+                    }
+                    group.add(range);
+                }
+                for (final LiveRange range : group) {
+                    if (range.group != null && range.group.equals(group) == false) {
+                        return false;
+                    }
+                    range.group = group;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Assigns registers to the live ranges in the order of their start positions. A register is
+         * free for a live range if all live ranges it has been assigned to end before the range starts.
+         */
+        private boolean assignRegisters(Collection<LiveRange> ranges) {
+            final int[] occupiedUntil = new int[Register.values().length];
+            Arrays.fill(occupiedUntil, -1);
+            final List<LiveRange> sorted = ranges.stream()
+                    .sorted(Comparator.comparingInt((LiveRange range) -> range.start).thenComparingInt(range -> range.end))
+                    .toList();
+            for (final LiveRange range : sorted) {
+                if (range.assigned != null) {
+                    continue;
+                }
+                final List<LiveRange> group = range.group != null ? range.group : List.of(range);
+                int first = this.fixedRegisterCount;
+                while (isFree(occupiedUntil, first, group) == false) {
+                    first++;
+                    if (first + group.size() > occupiedUntil.length) {
+                        return false;
+                    }
+                }
+                for (int offset = 0; offset < group.size(); offset++) {
+                    final LiveRange member = group.get(offset);
+                    member.assigned = Register.fromNumber(first + offset);
+                    occupiedUntil[first + offset] = Math.max(occupiedUntil[first + offset], member.end);
+                }
+            }
+            return true;
+        }
+
+        private static boolean isFree(int[] occupiedUntil, int first, List<LiveRange> group) {
+            for (int offset = 0; offset < group.size(); offset++) {
+                if (first + offset >= occupiedUntil.length || occupiedUntil[first + offset] >= group.get(offset).start) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the registers {@code instr} accesses after allocation or {@code null} if
+         *      an operand does not belong to a live range.
+         */
+        private Register[] rewrite(Instruction instr, LiveRange[] readRanges, LiveRange writtenRange) {
+            final Register[] registers = new Register[3];
+            for (int slot = 0; slot < registers.length; slot++) {
+                final Register register = instr.registerArg(slot);
+                if (register == null || isFixed(register)) {
+                    registers[slot] = register;
+                    continue;
+                }
+                final LiveRange range = slot == 0 && writtenRange != null
+                        ? writtenRange
+                        : readRanges[register.number()];
+                if (range == null) {
+                    return null;
+                }
+                registers[slot] = range.assigned;
+            }
+            return registers;
+        }
+
+        private static boolean isCall(OpCode opCode) {
+            return opCode == OpCode.Call || opCode == OpCode.CallVirt || opCode == OpCode.Invoke
+                   || opCode == OpCode.TailCall;
+        }
+    }
+}
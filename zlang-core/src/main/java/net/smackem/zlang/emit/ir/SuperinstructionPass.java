@@ -0,0 +1,179 @@
+package net.smackem.zlang.emit.ir;
+
+import java.util.*;
+
+/**
+ * Replaces frequent instruction sequences with fused instructions that do the same work in a single
+ * dispatch of the virtual machine.
+ * <ul>
+ *     <li>{@code Lt_i32 t, a, b; Br_zero t, L} becomes {@code Brf_lt_i32 a, b, L} if {@code t} is not
+ *          read afterwards. Likewise for the other int, bool, byte and float comparisons.</li>
+ *     <li>{@code Ldc_i32 c, k; Add_i32 t, a, c} becomes {@code Addi_i32 t, a, k} if {@code c} is not
+ *          read afterwards. {@code Sub_i32 t, a, c} becomes {@code Addi_i32 t, a, -k}.</li>
+ *     <li>The back edge {@code Add_i32 i, i, s; Br L} of a loop whose head {@code L} is
+ *          {@code Brf_lt_i32 i, n, X} becomes {@code Loop_lt_i32 i, s, n, B}, where {@code B} is the first
+ *          instruction of the loop body, followed by {@code Br X} unless {@code X} is the next instruction.
+ *          The condition is then checked only once per iteration.</li>
+ * </ul>
+ * <p>
+ *     The other passes do not look into fused instructions, so this pass should run last.
+ * </p>
+ */
+public final class SuperinstructionPass implements OptimizationPass {
+
+    @Override
+    public String name() {
+        return "superinstructions";
+    }
+
+    @Override
+    public void run(Program program) {
+        fusePairs(program);
+        fuseLoopBackEdges(program);
+    }
+
+    private static void fusePairs(Program program) {
+        final List<Instruction> instructions = program.instructions();
+        final BitSet[] liveOut = new FlowGraph(instructions).liveOut();
+        final Set<Instruction> jumpTargets = jumpTargets(program);
+        final Map<Instruction, Instruction> replacements = new HashMap<>();
+        final Set<Instruction> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int index = 0; index + 1 < instructions.size(); index++) {
+            final Instruction second = instructions.get(index + 1);
+            if (jumpTargets.contains(second)) {
+                continue;
+            }
+            final Instruction fused = fuse(instructions.get(index), second, liveOut[index + 1]);
+            if (fused != null) {
+                replacements.put(instructions.get(index), fused);
+                removed.add(second);
+                index++;
+            }
+        }
+        program.replaceInstructions(replacements);
+        program.removeInstructions(removed);
+    }
+
+    /**
+     * @return the instruction that replaces {@code first} and {@code second} or {@code null}
+     *      if the instructions cannot be fused.
+     */
+    private static Instruction fuse(Instruction first, Instruction second, BitSet liveOut) {
+        final Register temp = RegisterAccess.written(first);
+        if (temp == null) {
+            return null;
+        }
+        if (second.opCode() == OpCode.Br_zero) {
+            final OpCode opCode = branchIfFalse(first.opCode());
+            if (opCode == null || second.registerArg(0) != temp || liveOut.get(temp.number())) {
+                return null;
+            }
+            final Instruction branch = new Instruction(opCode);
+            branch.setRegisterArg(0, first.registerArg(1));
+            branch.setRegisterArg(1, first.registerArg(2));
+            branch.setLabelArg(second.labelArg());
+            return branch;
+        }
+        if (first.opCode() == OpCode.Ldc_i32
+                && (second.opCode() == OpCode.Add_i32 || second.opCode() == OpCode.Sub_i32)) {
+            if (liveOut.get(temp.number()) && second.registerArg(0) != temp) {
+                return null;
+            }
+            final Register source;
+            if (second.registerArg(2) == temp && second.registerArg(1) != temp) {
+                source = second.registerArg(1);
+            } else if (second.opCode() == OpCode.Add_i32
+                       && second.registerArg(1) == temp && second.registerArg(2) != temp) {
+                source = second.registerArg(2);
+            } else {
+                return null;
+            }
+            final int value = (int) first.intArg();
+            final Instruction add = new Instruction(OpCode.Addi_i32);
+            add.setRegisterArg(0, second.registerArg(0));
+            add.setRegisterArg(1, source);
+            add.setIntArg(second.opCode() == OpCode.Sub_i32 ? -value : value);
+            return add;
+        }
+        return null;
+    }
+
+    private static OpCode branchIfFalse(OpCode comparison) {
+        return switch (comparison) {
+            case Eq_i32, Eq_u8 -> OpCode.Brf_eq_i32;
+            case Eq_f64 -> OpCode.Brf_eq_f64;
+            case Ne_i32, Ne_u8 -> OpCode.Brf_ne_i32;
+            case Ne_f64 -> OpCode.Brf_ne_f64;
+            case Gt_i32, Gt_u8 -> OpCode.Brf_gt_i32;
+            case Gt_f64 -> OpCode.Brf_gt_f64;
+            case Ge_i32, Ge_u8 -> OpCode.Brf_ge_i32;
+            case Ge_f64 -> OpCode.Brf_ge_f64;
+            case Lt_i32, Lt_u8 -> OpCode.Brf_lt_i32;
+            case Lt_f64 -> OpCode.Brf_lt_f64;
+            case Le_i32, Le_u8 -> OpCode.Brf_le_i32;
+            case Le_f64 -> OpCode.Brf_le_f64;
+            default -> null;
+        };
+    }
+
+    private static void fuseLoopBackEdges(Program program) {
+        final List<Instruction> instructions = program.instructions();
+        final Map<Instruction, Integer> indexes = new IdentityHashMap<>();
+        for (int index = 0; index < instructions.size(); index++) {
+            indexes.put(instructions.get(index), index);
+        }
+        final Set<Instruction> jumpTargets = jumpTargets(program);
+        final Map<Instruction, Instruction> replacements = new HashMap<>();
+        final Set<Instruction> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int index = 0; index + 1 < instructions.size(); index++) {
+            final Instruction add = instructions.get(index);
+            final Instruction back = instructions.get(index + 1);
+            if (add.opCode() != OpCode.Add_i32 || back.opCode() != OpCode.Br || jumpTargets.contains(back)) {
+                continue;
+            }
+            final Instruction head = back.labelArg().target();
+            final int headIndex = indexes.get(head);
+            final Register counter = add.registerArg(0);
+            final Register step;
+            if (add.registerArg(1) == counter) {
+                step = add.registerArg(2);
+            } else if (add.registerArg(2) == counter) {
+                step = add.registerArg(1);
+            } else {
+                continue;
+            }
+            if (head.opCode() != OpCode.Brf_lt_i32
+                    || headIndex >= index
+                    || head.registerArg(0) != counter
+                    || head.registerArg(1) == counter) {
+                continue;
+            }
+            final Instruction loop = new Instruction(OpCode.Loop_lt_i32);
+            loop.setRegisterArg(0, counter);
+            loop.setRegisterArg(1, step);
+            loop.setRegisterArg(2, head.registerArg(1));
+            loop.setLabelArg(program.addLabel(instructions.get(headIndex + 1)));
+            replacements.put(add, loop);
+            final Label exit = head.labelArg();
+            if (index + 2 < instructions.size() && exit.target() == instructions.get(index + 2)) {
+                removed.add(back);
+            } else {
+                final Instruction branch = new Instruction(OpCode.Br);
+                branch.setLabelArg(exit);
+                replacements.put(back, branch);
+            }
+            index++;
+        }
+        program.replaceInstructions(replacements);
+        program.removeInstructions(removed);
+    }
+
+    private static Set<Instruction> jumpTargets(Program program) {
+        final Set<Instruction> jumpTargets = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final Label label : program.labels()) {
+            jumpTargets.add(label.target());
+        }
+        jumpTargets.addAll(program.functionEntries().values());
+        return jumpTargets;
+    }
+}
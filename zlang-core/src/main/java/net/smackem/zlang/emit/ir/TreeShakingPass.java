@@ -0,0 +1,98 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.symbols.*;
+
+import java.util.*;
+
+/**
+ * Removes functions and types that are not needed by the program.
+ * <p>
+ *     Functions are reachable if they are called from the entry point or a module initializer, directly
+ *     or through other reachable functions. Types are needed if reachable code instantiates them
+ *     ({@code NewObj}), checks against them ({@code TypeChk}) or calls one of their interface methods
+ *     ({@code CallVirt}). The interfaces implemented by a needed type are needed as well, and so are
+ *     the methods in its itable, since they may be called virtually.
+ * </p>
+ * <p>
+ *     Global variables are kept, even if they are never read: they make up the result of the program.
+ * </p>
+ */
+public final class TreeShakingPass implements OptimizationPass {
+
+    @Override
+    public String name() {
+        return "tree-shaking";
+    }
+
+    @Override
+    public void run(Program program) {
+        final Map<FunctionSymbol, List<Instruction>> bodies = program.functionBodies();
+        final Reachability reachability = new Reachability(bodies);
+        reachability.addFunction(program.entryPoint());
+        for (final FunctionSymbol function : bodies.keySet()) {
+            if (function.name().startsWith(Naming.GENERATED_INIT_FUNCTION_PREFIX)) {
+                reachability.addFunction(function);
+            }
+        }
+        reachability.run();
+
+        final Set<Instruction> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Set<FunctionSymbol> unreachableFunctions = new HashSet<>(bodies.keySet());
+        unreachableFunctions.removeAll(reachability.functions);
+        for (final FunctionSymbol function : unreachableFunctions) {
+            removed.addAll(bodies.get(function));
+        }
+
+        final List<Type> unusedTypes = program.types().stream()
+                .filter(type -> reachability.types.contains(type) == false)
+                .toList();
+        program.functionEntries().keySet().removeAll(unreachableFunctions);
+        program.removeInstructions(removed);
+        program.removeTypes(unusedTypes);
+    }
+
+    private static final class Reachability {
+        private final Map<FunctionSymbol, List<Instruction>> bodies;
+        private final Set<FunctionSymbol> functions = new HashSet<>();
+        private final Set<Type> types = new HashSet<>();
+        private final Deque<FunctionSymbol> pending = new ArrayDeque<>();
+
+        Reachability(Map<FunctionSymbol, List<Instruction>> bodies) {
+            this.bodies = bodies;
+        }
+
+        void run() {
+            while (this.pending.isEmpty() == false) {
+                final FunctionSymbol function = this.pending.pop();
+                for (final Instruction instr : this.bodies.get(function)) {
+                    switch (instr.opCode()) {
+                        case Call, TailCall -> addFunction((FunctionSymbol) instr.symbolArg());
+                        case CallVirt -> addType((Type) ((FunctionSymbol) instr.symbolArg()).enclosingScope());
+                        case NewObj, TypeChk -> addType((Type) instr.symbolArg());
+                    }
+                }
+            }
+        }
+
+        void addFunction(FunctionSymbol function) {
+            // built-in functions and interface methods have no code
+            if (this.bodies.containsKey(function) && this.functions.add(function)) {
+                this.pending.push(function);
+            }
+        }
+
+        private void addType(Type type) {
+            if (this.types.add(type) == false) {
+                return;
+            }
+            if (type instanceof AggregateTypeSymbol aggregate) {
+                for (final Type ifc : aggregate.implementedInterfaces()) {
+                    addType(ifc);
+                }
+                for (final MethodSymbol method : aggregate.buildVirtualTable().values()) {
+                    addFunction(method);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package net.smackem.zlang.lang;
+
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.dfa.DFA;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Manages the DFA and prediction context caches used by {@link ZLangLexer} and {@link ZLangParser}.
+ * <p>
+ *     ANTLR caches prediction results in static, unbounded structures shared by all parser instances.
+ *     This class replaces them with caches it owns, so that they can be measured and discarded once
+ *     their size exceeds a budget. The budget is measured in cache entries (DFA states plus cached
+ *     prediction contexts), which is a reasonable approximation of the memory held by the caches.
+ * </p>
+ */
+public class ParserCache {
+    private static final int DEFAULT_BUDGET = 200_000;
+    private static final ParserCache SHARED = new ParserCache(DEFAULT_BUDGET);
+
+    private final int budget;
+    private final AtomicLong resetCount = new AtomicLong();
+    private volatile Caches caches = new Caches();
+
+    /**
+     * Initializes a new instance of {@link ParserCache}.
+     *
+     * @param budget
+     *      The maximum number of DFA states and cached prediction contexts before the
+     *      caches are discarded.
+     */
+    public ParserCache(int budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * @return the process-wide cache used by {@link SyntaxTree#parse}.
+     */
+    public static ParserCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return the maximum number of DFA states and cached prediction contexts before the
+     *      caches are discarded.
+     */
+    public int budget() {
+        return this.budget;
+    }
+
+    /**
+     * @return the number of DFA states built by the parser.
+     */
+    public int parserDfaStateCount() {
+        return countStates(this.caches.parserDfa);
+    }
+
+    /**
+     * @return the number of DFA states built by the lexer.
+     */
+    public int lexerDfaStateCount() {
+        return countStates(this.caches.lexerDfa);
+    }
+
+    /**
+     * @return the number of prediction contexts cached by parser and lexer.
+     */
+    public int predictionContextCount() {
+        final Caches caches = this.caches;
+        return countContexts(caches.parserContextCache) + countContexts(caches.lexerContextCache);
+    }
+
+    /**
+     * @return the number of times the caches have been discarded because the budget was exceeded.
+     */
+    public long resetCount() {
+        return this.resetCount.get();
+    }
+
+    /**
+     * Discards all cached DFA states and prediction contexts.
+     */
+    public void clear() {
+        this.caches = new Caches();
+    }
+
+    void configure(ZLangLexer lexer, ZLangParser parser) {
+        final Caches caches = this.caches;
+        lexer.setInterpreter(new LexerATNSimulator(lexer, ZLangLexer._ATN, caches.lexerDfa, caches.lexerContextCache));
+        parser.setInterpreter(new ParserATNSimulator(parser, ZLangParser._ATN, caches.parserDfa, caches.parserContextCache));
+    }
+
+    void enforceBudget() {
+        final Caches caches = this.caches;
+        final int size = countStates(caches.parserDfa)
+                + countStates(caches.lexerDfa)
+                + countContexts(caches.parserContextCache)
+                + countContexts(caches.lexerContextCache);
+        if (size > this.budget && this.caches == caches) {
+            this.caches = new Caches();
+            this.resetCount.incrementAndGet();
+        }
+    }
+
+    private static int countStates(DFA[] dfas) {
+        int count = 0;
+        for (final DFA dfa : dfas) {
+            synchronized (dfa.states) {
+                count += dfa.states.size();
+            }
+        }
+        return count;
+    }
+
+    private static int countContexts(PredictionContextCache contextCache) {
+        synchronized (contextCache) {
+            return contextCache.size();
+        }
+    }
+
+    private static class Caches {
+        final DFA[] parserDfa = createDfa(ZLangParser._ATN);
+        final DFA[] lexerDfa = createDfa(ZLangLexer._ATN);
+        final PredictionContextCache parserContextCache = new PredictionContextCache();
+        final PredictionContextCache lexerContextCache = new PredictionContextCache();
+
+        private static DFA[] createDfa(ATN atn) {
+            final DFA[] dfas = new DFA[atn.getNumberOfDecisions()];
+            for (int i = 0; i < dfas.length; i++) {
+                dfas[i] = new DFA(atn.getDecisionState(i), i);
+            }
+            return dfas;
+        }
+    }
+}
@@ -2,7 +2,9 @@ package net.smackem.zlang.lang;
 
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 
 import java.io.IOException;
@@ -30,29 +32,72 @@ public class SyntaxTree {
     }
 
     public static SyntaxTree parse(String fileName, InputStream is) throws IOException, CompilationErrorException {
+        return parse(fileName, CharStreams.fromStream(is));
+    }
+
+    public static SyntaxTree parse(String fileName, CharStream input) throws CompilationErrorException {
         final List<String> errors = new ArrayList<>();
-        final ParseTree tree = parse(fileName, is, errors);
+        final ParseTree tree = parse(fileName, input, errors);
         if (errors.isEmpty() == false) {
             throw new CompilationErrorException(errors);
         }
         return new SyntaxTree(fileName, tree);
     }
 
-    private static ZLangParser.ModuleContext parse(String fileName, InputStream is, Collection<String> outErrors) throws IOException {
-        final CharStream input = CharStreams.fromStream(is);
-        final ZLangLexer lexer = new ZLangLexer(input);
+    private static ZLangParser.ModuleContext parse(String fileName, CharStream input, Collection<String> outErrors) {
         final ErrorListener errorListener = new ErrorListener(fileName);
-        lexer.addErrorListener(errorListener);
-        final CommonTokenStream tokens = new CommonTokenStream(lexer);
-        final ZLangParser parser = new ZLangParser(tokens);
-        parser.addErrorListener(errorListener);
-        final ZLangParser.ModuleContext ast = parser.module();
+        final ZLangParser.ModuleContext ast = parse(input, errorListener, true);
         if (outErrors.addAll(errorListener.errors)) {
             return null;
         }
         return ast;
     }
 
+    /**
+     * Parses the given input. If {@code twoStage} is {@code true}, parsing is first attempted
+     * using the faster SLL prediction mode, bailing out on the first syntax error. Only if that
+     * fails, the input is parsed again with full LL prediction and error reporting - which yields
+     * the same parse tree for valid input and the same diagnostics for invalid input.
+     */
+    static ZLangParser.ModuleContext parse(CharStream input, ANTLRErrorListener errorListener, boolean twoStage) {
+        return parse(input, errorListener, twoStage, ParserCache.shared());
+    }
+
+    /**
+     * Parses the given input using the DFA caches managed by the given {@link ParserCache}.
+     */
+    static ZLangParser.ModuleContext parse(CharStream input, ANTLRErrorListener errorListener, boolean twoStage, ParserCache cache) {
+        final ZLangLexer lexer = new ZLangLexer(input);
+        lexer.addErrorListener(errorListener);
+        final CommonTokenStream tokens = new CommonTokenStream(lexer);
+        final ZLangParser parser = new ZLangParser(tokens);
+        cache.configure(lexer, parser);
+        try {
+            return parse(tokens, parser, errorListener, twoStage);
+        } finally {
+            cache.enforceBudget();
+        }
+    }
+
+    private static ZLangParser.ModuleContext parse(CommonTokenStream tokens, ZLangParser parser, ANTLRErrorListener errorListener, boolean twoStage) {
+        parser.removeErrorListeners();
+        if (twoStage) {
+            parser.setErrorHandler(new BailErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            try {
+                return parser.module();
+            } catch (ParseCancellationException ignored) {
+                // SLL failed: either a syntax error or input that requires full context
+                tokens.seek(0);
+                parser.reset();
+                parser.setErrorHandler(new DefaultErrorStrategy());
+                parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            }
+        }
+        parser.addErrorListener(errorListener);
+        return parser.module();
+    }
+
     private static class ErrorListener implements ANTLRErrorListener {
         private final Collection<String> errors = new ArrayList<>();
         private final String fileName;
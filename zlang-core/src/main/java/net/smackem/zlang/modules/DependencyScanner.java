@@ -0,0 +1,52 @@
+package net.smackem.zlang.modules;
+
+import net.smackem.zlang.lang.ZLangLexer;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the module name and dependencies from the leading {@code module X uses A, B} declaration
+ * of a module source, using only the lexer. Malformed declarations are not reported here,
+ * but by the parser.
+ */
+class DependencyScanner {
+    private String declaredModuleName;
+    private List<String> dependencies;
+
+    String declaredModuleName() {
+        return this.declaredModuleName;
+    }
+
+    List<String> dependencies() {
+        return this.dependencies != null
+                ? this.dependencies
+                : List.of();
+    }
+
+    void scan(CharStream input) {
+        final ZLangLexer lexer = new ZLangLexer(input);
+        lexer.removeErrorListeners();
+        if (lexer.nextToken().getType() != ZLangLexer.Module) {
+            return;
+        }
+        Token token = lexer.nextToken();
+        if (token.getType() != ZLangLexer.Ident) {
+            return;
+        }
+        this.declaredModuleName = token.getText();
+        if (lexer.nextToken().getType() != ZLangLexer.Uses) {
+            return;
+        }
+        this.dependencies = new ArrayList<>();
+        do {
+            token = lexer.nextToken();
+            if (token.getType() != ZLangLexer.Ident) {
+                return;
+            }
+            this.dependencies.add(token.getText());
+        } while (lexer.nextToken().getType() == ZLangLexer.Comma);
+    }
+}
@@ -0,0 +1,36 @@
+package net.smackem.zlang.modules;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link SourceDirectory} that memory-maps source files instead of reading them through
+ * an {@link java.io.InputStream}. Preferable for large source files, since the file contents
+ * are decoded straight from the mapped file.
+ */
+public class MappedSourceDirectory extends SourceDirectory {
+
+    /**
+     * Initializes a new instance of {@link MappedSourceDirectory}.
+     *
+     * @param path
+     *      The path to the source directory.
+     *
+     * @param defaultFileExtension
+     *      The default extension to append to the passed module names. If it does
+     *      not begin with a {@code '.'}, the dot is prepended.
+     */
+    public MappedSourceDirectory(Path path, String defaultFileExtension) {
+        super(path, defaultFileExtension);
+    }
+
+    @Override
+    public ByteBuffer readSource(String moduleName) throws IOException {
+        try (final FileChannel channel = FileChannel.open(resolve(moduleName), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
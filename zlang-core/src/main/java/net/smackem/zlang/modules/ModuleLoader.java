@@ -0,0 +1,230 @@
+package net.smackem.zlang.modules;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import net.smackem.zlang.lang.CompilationErrorException;
+import net.smackem.zlang.lang.SyntaxTree;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CodePointBuffer;
+import org.antlr.v4.runtime.CodePointCharStream;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Loads a module and all of its transient dependencies, parsing each module only once.
+ * The dependency graph is discovered up front by scanning only the {@code module X uses A, B}
+ * declarations of the modules with the lexer, while all discovered modules are parsed concurrently.
+ * Missing modules and mismatching module names are therefore reported before any module has
+ * been parsed completely.
+ * <p>
+ *     Module sources are looked up in a {@link SyntaxTreeCache} first, so that unchanged
+ *     modules are not parsed again across loaders.
+ * </p>
+ * <p>
+ *     A single {@link ModuleLoader} can be used to load multiple entry modules - modules
+ *     shared by these entry modules are parsed only once and the resulting {@link ParsedModule}
+ *     instances are shared as well.
+ * </p>
+ */
+public class ModuleLoader {
+    private final SourceFileLocation location;
+    private final Executor executor;
+    private final SyntaxTreeCache syntaxTreeCache;
+    private final Map<String, ScannedModule> scannedModules = new ConcurrentHashMap<>();
+    private final Map<String, ParsedModule> modules = new HashMap<>();
+
+    /**
+     * Initializes a new instance of {@link ModuleLoader} that parses modules on
+     * the common {@link ForkJoinPool}, using the {@link SyntaxTreeCache#shared()} cache.
+     *
+     * @param location
+     *      The location to load module sources from.
+     */
+    public ModuleLoader(SourceFileLocation location) {
+        this(location, ForkJoinPool.commonPool(), SyntaxTreeCache.shared());
+    }
+
+    /**
+     * Initializes a new instance of {@link ModuleLoader}.
+     *
+     * @param location
+     *      The location to load module sources from.
+     *
+     * @param executor
+     *      The executor used to parse modules.
+     *
+     * @param syntaxTreeCache
+     *      The cache to look up parsed modules in.
+     */
+    public ModuleLoader(SourceFileLocation location, Executor executor, SyntaxTreeCache syntaxTreeCache) {
+        this.location = Objects.requireNonNull(location);
+        this.executor = Objects.requireNonNull(executor);
+        this.syntaxTreeCache = Objects.requireNonNull(syntaxTreeCache);
+    }
+
+    /**
+     * Loads the module with the specified name and all of its transient dependencies.
+     *
+     * @param moduleName
+     *      The name of the module to load.
+     *
+     * @return The {@link ParsedModule} that is the root of the dependency graph.
+     */
+    public ParsedModule load(String moduleName) throws IOException, CompilationErrorException {
+        // discover the complete dependency graph by scanning module headers - each module is scheduled
+        // for parsing as soon as it has been scanned
+        final List<String> reachableModuleNames = new ArrayList<>();
+        final Set<String> visitedModuleNames = new HashSet<>();
+        final Deque<String> queue = new ArrayDeque<>();
+        queue.offer(moduleName);
+        while (queue.isEmpty() == false) {
+            final String name = queue.poll();
+            if (visitedModuleNames.add(name) == false) {
+                continue;
+            }
+            reachableModuleNames.add(name);
+            queue.addAll(scan(name).dependencies());
+        }
+
+        // wait for all reachable modules in discovery order, so that errors are reported deterministically
+        final Map<String, ParsedUnit> reachableUnits = new LinkedHashMap<>();
+        for (final String name : reachableModuleNames) {
+            reachableUnits.put(name, join(this.scannedModules.get(name).unit()));
+        }
+        return link(moduleName, reachableUnits);
+    }
+
+    private ScannedModule scan(String moduleName) throws IOException, CompilationErrorException {
+        final ScannedModule existing = this.scannedModules.get(moduleName);
+        if (existing != null) {
+            return existing;
+        }
+        final ByteBuffer source = this.location.readSource(moduleName);
+        if (source == null) {
+            throw new FileNotFoundException("module '" + moduleName + "' not found");
+        }
+        final CodePointBuffer codePoints = decode(source);
+        final List<String> dependencies = scanDependencies(moduleName, codePoints);
+        final ScannedModule scanned = new ScannedModule(dependencies, new CompletableFuture<>());
+        final ScannedModule concurrentlyScanned = this.scannedModules.putIfAbsent(moduleName, scanned);
+        if (concurrentlyScanned != null) {
+            return concurrentlyScanned;
+        }
+        this.executor.execute(() -> {
+            try {
+                final HashCode sourceHash = Hashing.sha256().hashBytes(source.duplicate());
+                final SyntaxTree ast = this.syntaxTreeCache.parse(moduleName, sourceHash, codePoints);
+                scanned.unit().complete(new ParsedUnit(moduleName, sourceHash, ast, dependencies));
+            } catch (Throwable e) {
+                scanned.unit().completeExceptionally(e);
+            }
+        });
+        return scanned;
+    }
+
+    /**
+     * Computes the source hashes of the module with the specified name and all of its transient
+     * dependencies. Only the {@code module X uses A, B} declarations are scanned, no module is parsed.
+     *
+     * @param location
+     *      The location to load module sources from.
+     *
+     * @param moduleName
+     *      The name of the root module.
+     *
+     * @return the SHA-256 hashes of the module sources by module name, in discovery order.
+     */
+    public static Map<String, HashCode> scanSourceHashes(SourceFileLocation location, String moduleName)
+            throws IOException, CompilationErrorException {
+        final Map<String, HashCode> sourceHashes = new LinkedHashMap<>();
+        final Deque<String> queue = new ArrayDeque<>();
+        queue.offer(moduleName);
+        while (queue.isEmpty() == false) {
+            final String name = queue.poll();
+            if (sourceHashes.containsKey(name)) {
+                continue;
+            }
+            final ByteBuffer source = location.readSource(name);
+            if (source == null) {
+                throw new FileNotFoundException("module '" + name + "' not found");
+            }
+            sourceHashes.put(name, Hashing.sha256().hashBytes(source.duplicate()));
+            queue.addAll(scanDependencies(name, decode(source)));
+        }
+        return sourceHashes;
+    }
+
+    private static List<String> scanDependencies(String moduleName, CodePointBuffer codePoints) throws CompilationErrorException {
+        final DependencyScanner scanner = new DependencyScanner();
+        scanner.scan(CodePointCharStream.fromBuffer(codePoints, moduleName));
+
+        if (scanner.declaredModuleName() != null && scanner.declaredModuleName().equals(moduleName) == false) {
+            throw new CompilationErrorException("module name '%s' does not match file name '%s'"
+                    .formatted(scanner.declaredModuleName(), moduleName));
+        }
+        return List.copyOf(new LinkedHashSet<>(scanner.dependencies()));
+    }
+
+    /**
+     * Decodes the UTF-8 encoded module source - the only copy of the source made while loading a module.
+     * Malformed input is replaced, like {@link CharStreams#fromStream} does.
+     */
+    private static CodePointBuffer decode(ByteBuffer source) throws CharacterCodingException {
+        final CharBuffer chars = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(source.duplicate());
+        final CodePointBuffer.Builder builder = CodePointBuffer.builder(chars.remaining());
+        builder.append(chars);
+        return builder.build();
+    }
+
+    private synchronized ParsedModule link(String moduleName, Map<String, ParsedUnit> reachableUnits) {
+        for (final ParsedUnit unit : reachableUnits.values()) {
+            this.modules.computeIfAbsent(unit.moduleName(), ignored -> new ParsedModule(unit.moduleName(), unit.sourceHash(), unit.ast()));
+        }
+        for (final ParsedUnit unit : reachableUnits.values()) {
+            final ParsedModule module = this.modules.get(unit.moduleName());
+            if (module.dependencies().isEmpty() == false) {
+                continue; // already linked by a previous load
+            }
+            for (final String dependency : unit.dependencies()) {
+                module.addDependency(this.modules.get(dependency));
+            }
+        }
+        return this.modules.get(moduleName);
+    }
+
+    private static ParsedUnit join(CompletableFuture<ParsedUnit> future) throws IOException, CompilationErrorException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException ioe) {
+                throw ioe;
+            }
+            if (cause instanceof CompilationErrorException cee) {
+                throw cee;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            if (cause instanceof Error err) {
+                throw err;
+            }
+            throw e;
+        }
+    }
+
+    private static record ScannedModule(List<String> dependencies, CompletableFuture<ParsedUnit> unit) { }
+
+    private static record ParsedUnit(String moduleName, HashCode sourceHash, SyntaxTree ast, List<String> dependencies) { }
+}
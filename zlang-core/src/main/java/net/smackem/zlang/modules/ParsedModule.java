@@ -1,20 +1,21 @@
 package net.smackem.zlang.modules;
 
+import com.google.common.hash.HashCode;
 import net.smackem.zlang.lang.SyntaxTree;
 import net.smackem.zlang.lang.CompilationErrorException;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.*;
 
 public class ParsedModule {
     private final String moduleName;
+    private final HashCode sourceHash;
     private final SyntaxTree ast;
     private final List<ParsedModule> dependencies = new ArrayList<>();
 
-    private ParsedModule(String moduleName, SyntaxTree ast) {
+    ParsedModule(String moduleName, HashCode sourceHash, SyntaxTree ast) {
         this.moduleName = moduleName;
+        this.sourceHash = sourceHash;
         this.ast = ast;
     }
 
@@ -22,6 +23,13 @@ public class ParsedModule {
         return this.moduleName;
     }
 
+    /**
+     * @return the SHA-256 hash of the module source.
+     */
+    public HashCode sourceHash() {
+        return this.sourceHash;
+    }
+
     public SyntaxTree ast() {
         return this.ast;
     }
@@ -30,6 +38,10 @@ public class ParsedModule {
         return this.dependencies;
     }
 
+    void addDependency(ParsedModule dependency) {
+        this.dependencies.add(dependency);
+    }
+
     /**
      * @return a collection of all items below this {@link ParsedModule}, including
      *      {@code this} and all transient dependencies - in breadth-first order, beginning
@@ -42,47 +54,24 @@ public class ParsedModule {
         queue.offer(this);
         while (queue.isEmpty() == false) {
             final ParsedModule item = queue.pollFirst();
-            if (visitedModuleNames.contains(item.moduleName()) == false) {
+            if (visitedModuleNames.add(item.moduleName())) {
                 list.add(item);
+                queue.addAll(item.dependencies);
             }
-            visitedModuleNames.add(item.moduleName());
-            queue.addAll(item.dependencies);
         }
         Collections.reverse(list);
         return list;
     }
 
+    /**
+     * Parses the module with the specified name and all of its transient dependencies.
+     * Every module is parsed only once, even if it is referenced by multiple modules.
+     *
+     * @see ModuleLoader
+     */
     public static ParsedModule parse(String moduleName, SourceFileLocation location)
             throws IOException, CompilationErrorException {
-        final Set<String> visited = new HashSet<>();
-        return parseRecurse(moduleName, location, visited);
-    }
-
-    private static ParsedModule parseRecurse(String moduleName, SourceFileLocation location, Set<String> visited)
-            throws IOException, CompilationErrorException {
-        final InputStream is = location.openSource(moduleName);
-        if (is == null) {
-            throw new FileNotFoundException("module '" + moduleName + "' not found");
-        }
-        final SyntaxTree ast;
-        try (is) {
-            ast = SyntaxTree.parse(moduleName, is);
-        }
-
-        final ParsedModule tree = new ParsedModule(moduleName, ast);
-        final DependencyWalker walker = new DependencyWalker();
-        ast.accept(walker);
-
-        if (walker.declaredModuleName() != null && walker.declaredModuleName().equals(moduleName) == false) {
-            throw new CompilationErrorException("module name '%s' does not match file name '%s'"
-                    .formatted(walker.declaredModuleName(), moduleName));
-        }
-        for (final String dependency : walker.dependencies()) {
-            if (visited.add(dependency)) {
-                tree.dependencies.add(parse(dependency, location));
-            }
-        }
-        return tree;
+        return new ModuleLoader(location).load(moduleName);
     }
 
     @Override
@@ -33,16 +33,19 @@ public class SourceDirectory implements SourceFileLocation {
 
     @Override
     public InputStream openSource(String moduleName) throws IOException {
+        return Files.newInputStream(resolve(moduleName), StandardOpenOption.READ);
+    }
+
+    Path resolve(String moduleName) {
         if (moduleName.contains(".") == false) {
             moduleName = moduleName + this.defaultFileExtension;
         }
-        final Path filePath = Path.of(this.path.toString(), moduleName);
-        return Files.newInputStream(filePath, StandardOpenOption.READ);
+        return Path.of(this.path.toString(), moduleName);
     }
 
     @Override
     public String toString() {
-        return "SourceDirectory{" +
+        return getClass().getSimpleName() + "{" +
                "path=" + path +
                ", defaultFileExtension='" + defaultFileExtension + '\'' +
                '}';
@@ -2,7 +2,27 @@ package net.smackem.zlang.modules;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public interface SourceFileLocation {
     InputStream openSource(String moduleName) throws IOException;
+
+    /**
+     * Reads the complete source of the specified module. The default implementation
+     * reads the stream returned by {@link #openSource(String)} into a heap buffer.
+     *
+     * @param moduleName
+     *      The name of the module to read.
+     *
+     * @return the module source or {@code null} if the module could not be found.
+     */
+    default ByteBuffer readSource(String moduleName) throws IOException {
+        final InputStream is = openSource(moduleName);
+        if (is == null) {
+            return null;
+        }
+        try (is) {
+            return ByteBuffer.wrap(is.readAllBytes());
+        }
+    }
 }
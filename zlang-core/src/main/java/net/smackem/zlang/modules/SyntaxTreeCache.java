@@ -0,0 +1,111 @@
+package net.smackem.zlang.modules;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import net.smackem.zlang.lang.CompilationErrorException;
+import net.smackem.zlang.lang.SyntaxTree;
+import org.antlr.v4.runtime.CodePointBuffer;
+import org.antlr.v4.runtime.CodePointCharStream;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A bounded, least-recently-used cache of {@link SyntaxTree}s, keyed by module name and
+ * the content hash of the module source. Modules with unchanged source are not parsed again.
+ * <p>
+ *     {@link SyntaxTree}s are never modified after parsing, so cached instances are
+ *     shared between compilations.
+ * </p>
+ */
+public class SyntaxTreeCache {
+    private static final long DEFAULT_MAXIMUM_SIZE = 256;
+    private static final SyntaxTreeCache SHARED = new SyntaxTreeCache(DEFAULT_MAXIMUM_SIZE);
+
+    private final Cache<Key, SyntaxTree> cache;
+
+    /**
+     * Initializes a new instance of {@link SyntaxTreeCache}.
+     *
+     * @param maximumSize
+     *      The maximum number of {@link SyntaxTree}s to keep.
+     */
+    public SyntaxTreeCache(long maximumSize) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return the process-wide cache used by {@link ModuleLoader} unless specified otherwise.
+     */
+    public static SyntaxTreeCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the cached {@link SyntaxTree} for the given module source or parses the source
+     * if it has not been cached yet.
+     *
+     * @param moduleName
+     *      The name of the module to parse.
+     *
+     * @param contentHash
+     *      The SHA-256 hash of {@code source}.
+     *
+     * @param source
+     *      The decoded module source.
+     *
+     * @return The {@link SyntaxTree} of the module.
+     */
+    public SyntaxTree parse(String moduleName, HashCode contentHash, CodePointBuffer source) throws CompilationErrorException {
+        final Key key = new Key(moduleName, contentHash);
+        try {
+            return this.cache.get(key, () -> SyntaxTree.parse(moduleName, CodePointCharStream.fromBuffer(source, moduleName)));
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof CompilationErrorException cee) {
+                throw cee;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * @return the number of lookups that returned a cached {@link SyntaxTree}.
+     */
+    public long hitCount() {
+        return this.cache.stats().hitCount();
+    }
+
+    /**
+     * @return the number of lookups that had to parse the module source.
+     */
+    public long missCount() {
+        return this.cache.stats().missCount();
+    }
+
+    /**
+     * @return the number of {@link SyntaxTree}s that have been evicted due to the size limit.
+     */
+    public long evictionCount() {
+        return this.cache.stats().evictionCount();
+    }
+
+    /**
+     * @return the number of cached {@link SyntaxTree}s.
+     */
+    public long size() {
+        return this.cache.size();
+    }
+
+    /**
+     * Removes all cached {@link SyntaxTree}s.
+     */
+    public void clear() {
+        this.cache.invalidateAll();
+    }
+
+    private static record Key(String moduleName, HashCode contentHash) { }
+}
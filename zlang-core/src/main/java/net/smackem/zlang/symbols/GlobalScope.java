@@ -3,9 +3,12 @@ package net.smackem.zlang.symbols;
 import net.smackem.zlang.lang.CompilationErrorException;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 public class GlobalScope implements Scope {
     private final SymbolTable symbolTable;
+    private final Map<String, Symbol> moduleMembers = new HashMap<>();
 
     public GlobalScope() {
         this.symbolTable = new SymbolTable(null);
@@ -29,20 +32,20 @@ public class GlobalScope implements Scope {
 
     @Override
     public Symbol resolve(String name) {
-        Symbol symbol = this.symbolTable.resolve(name);
+        final Symbol symbol = this.symbolTable.resolve(name);
         if (symbol != null) {
             return symbol;
         }
-        // walk all nested module scopes to resolve symbol
-        for (final Symbol s : this.symbolTable.symbols()) {
-            if (s instanceof ModuleSymbol ms) {
-                symbol = ms.resolveMember(name);
-                if (symbol != null) {
-                    return symbol;
-                }
-            }
-        }
-        return null;
+        // module members are indexed on definition, so lookup does not depend on the number of modules
+        return this.moduleMembers.get(name);
+    }
+
+    /**
+     * Adds a symbol defined by a module to the program-wide index of module members.
+     * Called by {@link ModuleSymbol#define(String, Symbol)}.
+     */
+    void indexModuleMember(String name, Symbol symbol) {
+        this.moduleMembers.putIfAbsent(name, symbol);
     }
 
     @Override
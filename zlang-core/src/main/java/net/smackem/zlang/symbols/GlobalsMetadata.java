@@ -0,0 +1,220 @@
+package net.smackem.zlang.symbols;
+
+import net.smackem.zlang.lang.CompilationErrorException;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The global variables of a program and the types of their values, detached from the syntax trees
+ * the symbols have been extracted from. Can be serialized to store it alongside a compiled zap,
+ * so that the global segment of the zap can be read without compiling the program again.
+ * <p>
+ *     Only the members needed to read values are preserved: the fields of structs and unions
+ *     with their addresses and types, the element types of arrays. Interfaces and other types
+ *     without fields become structs without fields.
+ * </p>
+ */
+public record GlobalsMetadata(List<VariableSymbol> globals, List<Type> types) {
+
+    private static final byte TAG_BUILT_IN = 0;
+    private static final byte TAG_NIL = 1;
+    private static final byte TAG_ARRAY = 2;
+    private static final byte TAG_STRUCT = 3;
+    private static final byte TAG_UNION = 4;
+    private static final int NO_TYPE = -1;
+
+    public GlobalsMetadata {
+        globals = List.copyOf(globals);
+        types = List.copyOf(types);
+    }
+
+    /**
+     * @return the {@link GlobalsMetadata} describing {@code globals} and the types reachable
+     *      from their types.
+     */
+    public static GlobalsMetadata of(Collection<VariableSymbol> globals) {
+        final TypeTable table = new TypeTable();
+        for (final VariableSymbol global : globals) {
+            table.add(global.type());
+        }
+        return new GlobalsMetadata(List.copyOf(globals), table.types.stream()
+                .filter(type -> builtInType(type) == null && type != NilType.INSTANCE && type instanceof ArrayType == false)
+                .toList());
+    }
+
+    public byte[] serialize() {
+        final TypeTable table = new TypeTable();
+        for (final VariableSymbol global : this.globals) {
+            table.add(global.type());
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(table.types.size());
+            for (final Type type : table.types) {
+                writeType(out, type, table);
+            }
+            writeVariables(out, this.globals, table);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not thrown by ByteArrayOutputStream
+        }
+        return bytes.toByteArray();
+    }
+
+    public static GlobalsMetadata deserialize(byte[] bytes) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        final int typeCount = in.readInt();
+        final Type[] types = new Type[typeCount];
+        final Map<AggregateTypeSymbol, List<FieldInfo>> fields = new LinkedHashMap<>();
+        // first create all types, then define the fields, which may refer to any type
+        for (int index = 0; index < typeCount; index++) {
+            final byte tag = in.readByte();
+            types[index] = switch (tag) {
+                case TAG_BUILT_IN -> BuiltInType.valueOf(in.readUTF()).type();
+                case TAG_NIL -> NilType.INSTANCE;
+                case TAG_ARRAY -> new ArrayType(null, types[in.readInt()]);
+                case TAG_STRUCT, TAG_UNION -> {
+                    final String name = in.readUTF();
+                    final AggregateTypeSymbol type = tag == TAG_UNION
+                            ? new UnionSymbol(name, null)
+                            : new StructSymbol(name, null);
+                    fields.put(type, readFields(in));
+                    yield type;
+                }
+                default -> throw new IOException("invalid type tag " + tag);
+            };
+        }
+        try {
+            for (final var entry : fields.entrySet()) {
+                final AggregateTypeSymbol type = entry.getKey();
+                for (final FieldInfo info : entry.getValue()) {
+                    if (type instanceof UnionSymbol union && info.name().equals(union.flagField().name())) {
+                        union.flagField().setAddress(info.address());
+                        continue;
+                    }
+                    final FieldSymbol field = new FieldSymbol(info.name(), typeAt(types, info.typeIndex()), type);
+                    field.setAddress(info.address());
+                    type.define(field.name(), field);
+                }
+            }
+        } catch (CompilationErrorException e) {
+            throw new IOException(e);
+        }
+        final List<VariableSymbol> globals = new ArrayList<>();
+        for (final FieldInfo info : readFields(in)) {
+            final VariableSymbol global = new VariableSymbol(info.name(), typeAt(types, info.typeIndex()), true);
+            global.setAddress(info.address());
+            globals.add(global);
+        }
+        return new GlobalsMetadata(globals, fields.keySet().stream()
+                .map(type -> (Type) type)
+                .toList());
+    }
+
+    private static void writeType(DataOutputStream out, Type type, TypeTable table) throws IOException {
+        final BuiltInType builtInType = builtInType(type);
+        if (builtInType != null) {
+            out.writeByte(TAG_BUILT_IN);
+            out.writeUTF(builtInType.name());
+        } else if (type == NilType.INSTANCE) {
+            out.writeByte(TAG_NIL);
+        } else if (type instanceof ArrayType arrayType) {
+            out.writeByte(TAG_ARRAY);
+            out.writeInt(table.indexOf(arrayType.elementType()));
+        } else if (type instanceof UnionSymbol union) {
+            out.writeByte(TAG_UNION);
+            out.writeUTF(union.name());
+            // define the fields in the order of their ids, which are assigned on definition
+            final List<VariableSymbol> fields = new ArrayList<>();
+            fields.add(union.flagField());
+            for (int id = 0; union.getFieldById(id) != null; id++) {
+                fields.add((VariableSymbol) union.getFieldById(id));
+            }
+            writeVariables(out, fields, table);
+        } else {
+            out.writeByte(TAG_STRUCT);
+            out.writeUTF(type.typeName());
+            writeVariables(out, fields(type), table);
+        }
+    }
+
+    private static void writeVariables(DataOutputStream out, Collection<VariableSymbol> variables, TypeTable table) throws IOException {
+        out.writeInt(variables.size());
+        for (final VariableSymbol variable : variables) {
+            out.writeUTF(variable.name());
+            out.writeInt(variable.address());
+            out.writeInt(variable.type() != null ? table.indexOf(variable.type()) : NO_TYPE);
+        }
+    }
+
+    private static List<FieldInfo> readFields(DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        final List<FieldInfo> fields = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            fields.add(new FieldInfo(in.readUTF(), in.readInt(), in.readInt()));
+        }
+        return fields;
+    }
+
+    private static Type typeAt(Type[] types, int index) {
+        return index != NO_TYPE ? types[index] : null;
+    }
+
+    private static List<VariableSymbol> fields(Type type) {
+        if (type instanceof Scope scope) {
+            return scope.symbols().stream()
+                    .filter(symbol -> symbol instanceof VariableSymbol)
+                    .map(symbol -> (VariableSymbol) symbol)
+                    .toList();
+        }
+        return List.of();
+    }
+
+    private static BuiltInType builtInType(Type type) {
+        for (final BuiltInType builtInType : BuiltInType.values()) {
+            if (builtInType.type() == type) {
+                return builtInType;
+            }
+        }
+        return null;
+    }
+
+    private static record FieldInfo(String name, int address, int typeIndex) { }
+
+    /**
+     * Assigns indexes to types so that the element type of an array precedes the array. Structs and unions
+     * get their index before their field types, which may refer back to them.
+     */
+    private static class TypeTable {
+        final List<Type> types = new ArrayList<>();
+        final Map<Type, Integer> indexes = new IdentityHashMap<>();
+
+        void add(Type type) {
+            if (type == null || this.indexes.containsKey(type)) {
+                return;
+            }
+            if (builtInType(type) != null) {
+                register(type);
+                return;
+            }
+            if (type instanceof ArrayType arrayType) {
+                add(arrayType.elementType());
+                register(type);
+                return;
+            }
+            register(type);
+            for (final VariableSymbol field : fields(type)) {
+                add(field.type());
+            }
+        }
+
+        private void register(Type type) {
+            this.indexes.put(type, this.types.size());
+            this.types.add(type);
+        }
+
+        int indexOf(Type type) {
+            return this.indexes.get(type);
+        }
+    }
+}
@@ -3,10 +3,24 @@ package net.smackem.zlang.symbols;
 import java.util.stream.Collectors;
 
 public class InterfaceMethodSymbol extends MethodSymbol {
+    private int itableSlot;
+
     InterfaceMethodSymbol(String name, Type type, MemberScope enclosingScope) {
         super(name, type, enclosingScope);
     }
 
+    /**
+     * @return the index of the implementing method in the itables of the types that
+     *      implement the declaring interface.
+     */
+    public int itableSlot() {
+        return this.itableSlot;
+    }
+
+    public void setItableSlot(int itableSlot) {
+        this.itableSlot = itableSlot;
+    }
+
     @Override
     public String toString() {
         return "InterfaceMethodSymbol{" +
@@ -23,6 +23,9 @@ public class ModuleSymbol extends Symbol implements MemberScope {
             throw new CompilationErrorException("duplicate definition of global symbol " + name);
         }
         this.symbolTable.define(name, symbol);
+        if (this.enclosingScope() instanceof GlobalScope globalScope) {
+            globalScope.indexModuleMember(name, symbol);
+        }
     }
 
     @Override
@@ -1,13 +1,10 @@
 package net.smackem.zlang.symbols;
 
-import org.antlr.v4.runtime.ParserRuleContext;
-
 import java.lang.reflect.Array;
 import java.util.Collection;
-import java.util.Map;
 import java.util.stream.Collectors;
 
-public record ProgramStructure(int globalSegmentSize, GlobalScope globalScope, Map<ParserRuleContext, Scope> scopes) {
+public record ProgramStructure(int globalSegmentSize, GlobalScope globalScope, ScopeMap scopes) {
     public Collection<VariableSymbol> globals() {
         return globalScope.symbols().stream()
                 .filter(s -> s instanceof ModuleSymbol)
@@ -0,0 +1,126 @@
+package net.smackem.zlang.symbols;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import java.util.*;
+
+/**
+ * Maps the rule contexts of all modules of a program to the {@link Scope}s they open.
+ * <p>
+ *     Each module stores its scopes in a flat array indexed by the token index of the first
+ *     token of the rule context. Token indices are dense per module, so lookup does not need
+ *     to hash rule contexts. Rule contexts that start at the same token share a slot and are
+ *     distinguished by identity.
+ * </p>
+ * <p>
+ *     The scopes of different modules may be modified concurrently, the scopes of a single
+ *     module may not.
+ * </p>
+ */
+public final class ScopeMap extends AbstractMap<ParserRuleContext, Scope> {
+    private final Map<String, ModuleScopes> modules = new LinkedHashMap<>();
+
+    /**
+     * @return the scopes of the module with the given name.
+     */
+    synchronized ModuleScopes module(String moduleName) {
+        return this.modules.computeIfAbsent(moduleName, ignored -> new ModuleScopes());
+    }
+
+    @Override
+    public Scope get(Object key) {
+        if (key instanceof ParserRuleContext ctx) {
+            for (final ModuleScopes module : moduleList()) {
+                final Scope scope = module.get(ctx);
+                if (scope != null) {
+                    return scope;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return moduleList().stream()
+                .mapToInt(module -> module.size)
+                .sum();
+    }
+
+    @Override
+    public Set<Entry<ParserRuleContext, Scope>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<ParserRuleContext, Scope>> iterator() {
+                return moduleList().stream()
+                        .flatMap(module -> module.entries().stream())
+                        .iterator();
+            }
+
+            @Override
+            public int size() {
+                return ScopeMap.this.size();
+            }
+        };
+    }
+
+    private synchronized List<ModuleScopes> moduleList() {
+        return List.copyOf(this.modules.values());
+    }
+
+    static final class ModuleScopes {
+        private static final int INITIAL_CAPACITY = 64;
+        private Slot[] slots = new Slot[INITIAL_CAPACITY];
+        private int size;
+
+        Scope get(ParserRuleContext ctx) {
+            final int index = ctx.getStart().getTokenIndex();
+            if (index < 0 || index >= this.slots.length) {
+                return null;
+            }
+            for (Slot slot = this.slots[index]; slot != null; slot = slot.next) {
+                if (slot.ctx == ctx) {
+                    return slot.scope;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Associates {@code scope} with {@code ctx}.
+         *
+         * @return {@code false} if {@code ctx} already has a scope.
+         */
+        boolean put(ParserRuleContext ctx, Scope scope) {
+            final int index = ctx.getStart().getTokenIndex();
+            if (index >= this.slots.length) {
+                this.slots = Arrays.copyOf(this.slots, Math.max(index + 1, this.slots.length * 2));
+            }
+            for (Slot slot = this.slots[index]; slot != null; slot = slot.next) {
+                if (slot.ctx == ctx) {
+                    return false;
+                }
+            }
+            this.slots[index] = new Slot(ctx, scope, this.slots[index]);
+            this.size++;
+            return true;
+        }
+
+        private List<Entry<ParserRuleContext, Scope>> entries() {
+            final List<Entry<ParserRuleContext, Scope>> entries = new ArrayList<>(this.size);
+            for (final Slot head : this.slots) {
+                for (Slot slot = head; slot != null; slot = slot.next) {
+                    entries.add(Map.entry(slot.ctx, slot.scope));
+                }
+            }
+            return entries;
+        }
+    }
+
+    private static record Slot(ParserRuleContext ctx, Scope scope, Slot next) { }
+}
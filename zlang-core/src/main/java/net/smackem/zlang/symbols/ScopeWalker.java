@@ -5,20 +5,20 @@ import net.smackem.zlang.lang.ZLangBaseVisitor;
 import net.smackem.zlang.lang.ZLangParser;
 import org.antlr.v4.runtime.ParserRuleContext;
 
-import java.util.Map;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 public abstract class ScopeWalker<T> extends ZLangBaseVisitor<T> {
     private final String moduleName;
-    private final Map<ParserRuleContext, Scope> scopes;
+    private final ScopeMap.ModuleScopes scopes;
     private final GlobalScope globalScope;
     private Scope currentScope;
 
-    protected ScopeWalker(String moduleName, GlobalScope globalScope, Map<ParserRuleContext, Scope> scopes) {
+    protected ScopeWalker(String moduleName, GlobalScope globalScope, ScopeMap scopes) {
         this.moduleName = Objects.requireNonNull(moduleName);
         this.globalScope = globalScope;
         this.currentScope = globalScope;
-        this.scopes = scopes;
+        this.scopes = scopes.module(moduleName);
     }
 
     protected final String moduleName() {
@@ -54,7 +54,7 @@ public abstract class ScopeWalker<T> extends ZLangBaseVisitor<T> {
         if (scope.enclosingScope() != this.currentScope) {
             throw new RuntimeException("new scope is not enclosed by current scope");
         }
-        if (this.scopes.put(ctx, scope) != null) {
+        if (this.scopes.put(ctx, scope) == false) {
             throw new RuntimeException("there already was a scope for rule context " + ctx);
         }
         this.currentScope = scope;
@@ -90,29 +90,28 @@ public abstract class ScopeWalker<T> extends ZLangBaseVisitor<T> {
     }
 
     protected ArrayType defineArrayType(Type elementType) {
-        final String arrayTypeName = ArrayType.typeName(elementType);
-        final Symbol resolvedListType = currentScope().resolve(arrayTypeName);
-        if (resolvedListType != null) {
-            return (ArrayType) resolvedListType;
-        }
-        final ArrayType type = new ArrayType(this.globalScope, elementType);
-        try {
-            globalScope().define(arrayTypeName, type);
-        } catch (CompilationErrorException e) {
-            throw new RuntimeException(e); // must not happen
-        }
-        return type;
+        return (ArrayType) defineDerivedType(ArrayType.typeName(elementType),
+                () -> new ArrayType(this.globalScope, elementType));
     }
 
     protected ListType defineListType(Type elementType) {
-        final String listTypeName = ListType.typeName(elementType);
-        final Symbol resolvedListType = currentScope().resolve(listTypeName);
-        if (resolvedListType != null) {
-            return (ListType) resolvedListType;
+        final ArrayType arrayType = defineArrayType(elementType);
+        return (ListType) defineDerivedType(ListType.typeName(elementType),
+                () -> new ListType(this.globalScope, arrayType));
+    }
+
+    /**
+     * Resolves the derived (array or list) type with the given name or creates it using
+     * {@code factory} and defines it in the global scope.
+     */
+    Type defineDerivedType(String typeName, Supplier<Type> factory) {
+        final Symbol resolvedType = currentScope().resolve(typeName);
+        if (resolvedType != null) {
+            return (Type) resolvedType;
         }
-        final ListType type = new ListType(this.globalScope, defineArrayType(elementType));
+        final Type type = factory.get();
         try {
-            globalScope().define(listTypeName, type);
+            globalScope().define(typeName, (Symbol) type);
         } catch (CompilationErrorException e) {
             throw new RuntimeException(e); // must not happen
         }
@@ -1,9 +1,11 @@
 package net.smackem.zlang.symbols;
 
 import net.smackem.zlang.modules.ParsedModule;
-import org.antlr.v4.runtime.ParserRuleContext;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.IntStream;
 
 public final class SymbolExtractor {
 
@@ -11,6 +13,12 @@ public final class SymbolExtractor {
 
     /**
      * Extracts all scopes and their contained symbols from the the specified modules.
+     * <p>
+     *     Types and module-level symbols are extracted sequentially, in module order, so that the
+     *     addresses of globals do not depend on scheduling. The symbols declared in function bodies
+     *     are then extracted for all modules concurrently. Array and list types are defined
+     *     in the global scope afterwards, in the order of their first use in module order.
+     * </p>
      *
      * @param modules
      *      The flattened list of modules that build a dependency tree. The first module
@@ -26,16 +34,44 @@ public final class SymbolExtractor {
      * @return The {@link ProgramStructure}.
      */
     public static ProgramStructure extractSymbols(Collection<ParsedModule> modules, GlobalScope globalScope, Collection<String> outErrors) {
-        int globalSegmentSize = 0;
-        final Map<ParserRuleContext, Scope> scopes = new HashMap<>();
-        for (final ParsedModule module : modules) {
+        final List<ParsedModule> moduleList = List.copyOf(modules);
+        final ScopeMap scopes = new ScopeMap();
+        for (final ParsedModule module : moduleList) {
             final TypeWalker typeWalker = new TypeWalker(module.moduleName(), globalScope, scopes);
             module.ast().accept(typeWalker);
         }
-        for (final ParsedModule module : modules) {
-            final SymbolWalker symbolWalker = new SymbolWalker(module.moduleName(), globalScope, scopes, globalSegmentSize);
+        final ConcurrentMap<String, Type> pendingTypes = new ConcurrentHashMap<>();
+        final SymbolWalker[] declarationWalkers = new SymbolWalker[moduleList.size()];
+        int globalSegmentSize = 0;
+        for (int i = 0; i < moduleList.size(); i++) {
+            final ParsedModule module = moduleList.get(i);
+            final SymbolWalker symbolWalker = new SymbolWalker(module.moduleName(), globalScope, scopes, pendingTypes, globalSegmentSize);
             module.ast().accept(symbolWalker);
             globalSegmentSize = symbolWalker.globalSegmentSize();
+            declarationWalkers[i] = symbolWalker;
+        }
+
+        final SymbolWalker[] bodyWalkers = new SymbolWalker[moduleList.size()];
+        final RuntimeException[] bodyErrors = new RuntimeException[moduleList.size()];
+        IntStream.range(0, moduleList.size()).parallel().forEach(i -> {
+            final ParsedModule module = moduleList.get(i);
+            final SymbolWalker symbolWalker = new SymbolWalker(module.moduleName(), globalScope, scopes, pendingTypes);
+            try {
+                module.ast().accept(symbolWalker);
+            } catch (RuntimeException e) {
+                bodyErrors[i] = e;
+            }
+            bodyWalkers[i] = symbolWalker;
+        });
+        // report the error of the first failing module, regardless of scheduling
+        for (final RuntimeException e : bodyErrors) {
+            if (e != null) {
+                throw e;
+            }
+        }
+        // define array and list types in the same order as a single sequential walk would
+        for (int i = 0; i < moduleList.size(); i++) {
+            SymbolWalker.definePendingTypes(declarationWalkers[i], bodyWalkers[i]);
         }
 
         final long entryPointCount = scopes.values().stream()
@@ -1,23 +1,105 @@
 package net.smackem.zlang.symbols;
 
+import net.smackem.zlang.lang.CompilationErrorException;
 import net.smackem.zlang.lang.ZLangParser;
-import org.antlr.v4.runtime.ParserRuleContext;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.BiFunction;
+import java.util.function.Supplier;
 
+/**
+ * Defines the symbols of a module in two passes:
+ * <ol>
+ *     <li>the declaration pass defines module-level symbols (functions, methods and their parameters,
+ *     type members and globals) without visiting function bodies.</li>
+ *     <li>the function body pass defines the locals of all functions. Since it only modifies scopes
+ *     owned by the module, the function bodies of different modules can be walked concurrently.</li>
+ * </ol>
+ */
 class SymbolWalker extends ScopeWalker<Void> {
     private int globalSegmentSize = 0;
+    private final boolean functionBodyPass;
+    private final ConcurrentMap<String, Type> pendingTypes;
+    private final List<PendingTypeUse> pendingTypeUses = new ArrayList<>();
+    private int globalDeclIndex = -1;
 
-    SymbolWalker(String moduleName, GlobalScope globalScope, Map<ParserRuleContext, Scope> scopes, int globalSegmentSize) {
+    /**
+     * Initializes a walker for the declaration pass.
+     * Array and list types are not defined in the global scope, but collected in {@code pendingTypes},
+     * which is shared by all walkers of both passes. Call {@link #definePendingTypes(SymbolWalker, SymbolWalker)}
+     * to define them once all walkers are done.
+     */
+    SymbolWalker(String moduleName, GlobalScope globalScope, ScopeMap scopes, ConcurrentMap<String, Type> pendingTypes, int globalSegmentSize) {
         super(moduleName, globalScope, scopes);
         this.globalSegmentSize = globalSegmentSize;
+        this.functionBodyPass = false;
+        this.pendingTypes = pendingTypes;
+    }
+
+    /**
+     * Initializes a walker for the function body pass.
+     */
+    SymbolWalker(String moduleName, GlobalScope globalScope, ScopeMap scopes, ConcurrentMap<String, Type> pendingTypes) {
+        super(moduleName, globalScope, scopes);
+        this.functionBodyPass = true;
+        this.pendingTypes = pendingTypes;
     }
 
     public int globalSegmentSize() {
         return this.globalSegmentSize;
     }
 
+    /**
+     * Defines the array and list types used by a module in the global scope, in the order of their first use
+     * in a single walk over the module: the uses of both passes are merged by the global declaration they
+     * occur in, with the uses of the declaration pass preceding those in the function body.
+     */
+    static void definePendingTypes(SymbolWalker declarationWalker, SymbolWalker bodyWalker) {
+        final List<PendingTypeUse> declarationUses = declarationWalker.pendingTypeUses;
+        final List<PendingTypeUse> bodyUses = bodyWalker.pendingTypeUses;
+        int declarationIndex = 0;
+        int bodyIndex = 0;
+        while (declarationIndex < declarationUses.size() || bodyIndex < bodyUses.size()) {
+            final PendingTypeUse use;
+            if (bodyIndex >= bodyUses.size()
+                || declarationIndex < declarationUses.size()
+                   && declarationUses.get(declarationIndex).globalDeclIndex() <= bodyUses.get(bodyIndex).globalDeclIndex()) {
+                use = declarationUses.get(declarationIndex);
+                declarationIndex++;
+            } else {
+                use = bodyUses.get(bodyIndex);
+                bodyIndex++;
+            }
+            declarationWalker.definePendingType(use.typeName());
+        }
+    }
+
+    private void definePendingType(String typeName) {
+        if (globalScope().resolve(typeName) != null) {
+            return;
+        }
+        try {
+            globalScope().define(typeName, (Symbol) this.pendingTypes.get(typeName));
+        } catch (CompilationErrorException e) {
+            throw new RuntimeException(e); // must not happen
+        }
+    }
+
+    @Override
+    Type defineDerivedType(String typeName, Supplier<Type> factory) {
+        // the global scope is not modified while the walkers are running
+        final Symbol resolvedType = currentScope().resolve(typeName);
+        if (resolvedType != null) {
+            return (Type) resolvedType;
+        }
+        this.pendingTypeUses.add(new PendingTypeUse(this.globalDeclIndex, typeName));
+        return this.pendingTypes.computeIfAbsent(typeName, ignored -> factory.get());
+    }
+
+    private static record PendingTypeUse(int globalDeclIndex, String typeName) { }
+
     @Override
     public Void visitModule(ZLangParser.ModuleContext ctx) {
         enterScope(ctx);
@@ -26,6 +108,21 @@ class SymbolWalker extends ScopeWalker<Void> {
         return null;
     }
 
+    @Override
+    public Void visitGlobalDecl(ZLangParser.GlobalDeclContext ctx) {
+        this.globalDeclIndex++;
+        if (this.functionBodyPass == false) {
+            return super.visitGlobalDecl(ctx);
+        }
+        if (ctx.functionDecl() != null) {
+            final ZLangParser.FunctionDeclContext functionDecl = ctx.functionDecl();
+            enterScope(functionDecl);
+            functionDecl.block().accept(this);
+            popScope();
+        }
+        return null;
+    }
+
     @Override
     public Void visitFunctionDecl(ZLangParser.FunctionDeclContext ctx) {
         final String name = ctx.Ident().getText();
@@ -74,7 +171,7 @@ class SymbolWalker extends ScopeWalker<Void> {
                 paramRegisterNumber++;
             }
         }
-        super.visitFunctionDecl(ctx);
+        // the function body is visited in the function body pass
         popScope();
         return null;
     }
@@ -1,13 +1,10 @@
 package net.smackem.zlang.symbols;
 
 import net.smackem.zlang.lang.ZLangParser;
-import org.antlr.v4.runtime.ParserRuleContext;
-
-import java.util.Map;
 
 class TypeWalker extends ScopeWalker<Void> {
 
-    TypeWalker(String fileName, GlobalScope globalScope, Map<ParserRuleContext, Scope> scopes) {
+    TypeWalker(String fileName, GlobalScope globalScope, ScopeMap scopes) {
         super(fileName, globalScope, scopes);
     }
 
@@ -0,0 +1,192 @@
+package net.smackem.zlang.compiler;
+
+import net.smackem.zlang.emit.bytecode.ByteCodeWriterOptions;
+import net.smackem.zlang.interpret.Interpreter;
+import net.smackem.zlang.modules.SourceFileLocation;
+import net.smackem.zlang.modules.SyntaxTreeCache;
+import net.smackem.zlang.modules.SourceFileLocations;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompilationCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String MAIN = """
+            module app uses dep
+            struct Point {
+                x: int
+                y: int
+            }
+            var result: int
+            var point: Point
+            fn main() {
+                result = square(12)
+                point = new Point {
+                    x = 1
+                    y = 2
+                }
+            }
+            """;
+    private static final String DEP = """
+            module dep
+            fn square(n: int) -> int {
+                return n * n
+            }
+            """;
+
+    @Test
+    public void cachedZapYieldsSameResult() throws Exception {
+        final CompilationCache cache = new CompilationCache(folder.getRoot().toPath());
+        final SourceFileLocation sources = SourceFileLocations.ofMap(Map.of("app", MAIN, "dep", DEP));
+        final ByteCodeWriterOptions options = new ByteCodeWriterOptions().isMemoryImage(true).heapSize(4096);
+        final ZLCompiler.CompilationResult compiled = ZLCompiler.compile(cache, sources, "app", options);
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.hitCount()).isEqualTo(0);
+        final ZLCompiler.CompilationResult cached = ZLCompiler.compile(cache, sources, "app", options);
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cached.firstZap().isDirect()).isTrue();
+        assertThat(cached.firstZap().capacity()).isEqualTo(compiled.firstZap().capacity());
+        assertThat(cached.program().instructions()).isEmpty();
+
+        final Map<String, Object> globals = Interpreter.run(cached.firstZap(), cached.program());
+        assertThat(globals).containsEntry("result", 144);
+        assertThat(globals).containsEntry("point", Map.of("x", 1, "y", 2));
+        assertThat(globals).isEqualTo(Interpreter.run(compiled.firstZap(), compiled.program()));
+    }
+
+    @Test
+    public void changedSourceIsCompiledAgain() throws Exception {
+        final CompilationCache cache = new CompilationCache(folder.getRoot().toPath());
+        final Map<String, String> sourceMap = new HashMap<>(Map.of("app", MAIN, "dep", DEP));
+        final SourceFileLocation sources = SourceFileLocations.ofMap(sourceMap);
+        final ByteCodeWriterOptions options = new ByteCodeWriterOptions();
+        ZLCompiler.compile(cache, sources, "app", options);
+        sourceMap.put("dep", DEP.replace("n * n", "n * n * n"));
+        ZLCompiler.compile(cache, sources, "app", options);
+        assertThat(cache.missCount()).isEqualTo(2);
+        ZLCompiler.compile(cache, sources, "app", options);
+        assertThat(cache.hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void optionsArePartOfKey() throws Exception {
+        final CompilationCache cache = new CompilationCache(folder.getRoot().toPath());
+        final SourceFileLocation sources = SourceFileLocations.ofMap(Map.of("app", MAIN, "dep", DEP));
+        final ZLCompiler.CompilationResult result = ZLCompiler.compile(cache, sources, "app",
+                new ByteCodeWriterOptions(),
+                new ByteCodeWriterOptions().maxStackDepth(32));
+        assertThat(cache.missCount()).isEqualTo(2);
+        final ZLCompiler.CompilationResult cached = ZLCompiler.compile(cache, sources, "app",
+                new ByteCodeWriterOptions(),
+                new ByteCodeWriterOptions().maxStackDepth(32));
+        assertThat(cache.hitCount()).isEqualTo(2);
+        for (int i = 0; i < 2; i++) {
+            final ByteBuffer zap = cached.zaps().get(i);
+            assertThat(zap.isDirect()).isFalse();
+            assertThat(zap).isEqualTo(result.zaps().get(i));
+        }
+    }
+
+    @Test
+    public void compilationIsDeterministic() throws Exception {
+        // cached zaps must not differ from freshly compiled ones
+        final SourceFileLocation sources = SourceFileLocations.ofMap(Map.of("app", MAIN, "dep", DEP));
+        final ByteBuffer zap = ZLCompiler.compile(sources, "app", new ByteCodeWriterOptions()).firstZap();
+        for (int i = 0; i < 10; i++) {
+            assertThat(ZLCompiler.compile(sources, "app", new ByteCodeWriterOptions()).firstZap()).isEqualTo(zap);
+        }
+    }
+
+    @Test
+    public void cacheHitSkipsParsing() throws Exception {
+        final SourceFileLocation sources = SourceFileLocations.ofMap(Map.of("app", MAIN, "dep", DEP));
+        final ByteCodeWriterOptions options = new ByteCodeWriterOptions();
+        final ZLCompiler.CompilationResult compiled = ZLCompiler.compile(
+                new CompilationCache(folder.getRoot().toPath()), sources, "app", options);
+        // a new cache instance on the same directory, like after a restart
+        final CompilationCache cache = new CompilationCache(folder.getRoot().toPath());
+        final SyntaxTreeCache syntaxTrees = SyntaxTreeCache.shared();
+        final long lookups = syntaxTrees.hitCount() + syntaxTrees.missCount();
+        final ZLCompiler.CompilationResult cached = ZLCompiler.compile(cache, sources, "app", options);
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(syntaxTrees.hitCount() + syntaxTrees.missCount()).isEqualTo(lookups);
+        assertThat(cached.firstZap()).isEqualTo(compiled.firstZap());
+    }
+
+    @Test
+    public void cachedMetadataDescribesAllGlobals() throws Exception {
+        final String source = """
+                union Shape {
+                    circle: float
+                    label:  string
+                }
+                struct Node {
+                    value: int
+                    next: Node
+                    tags: byte[]
+                }
+                var shape: Shape
+                var other: Shape
+                var head: Node
+                var names: string
+                var numbers: int[]
+                var values: int list
+                var flag: bool
+                var ratio: float
+                fn main() {
+                    shape = new Shape::circle(1.5)
+                    other = new Shape::label("abc")
+                    head = new Node {
+                        value = 1
+                        next = new Node {
+                            value = 2
+                        }
+                        tags = new byte[2]
+                    }
+                    names = "names"
+                    numbers = new int[3]
+                    numbers[1] = 7
+                    values = new int list {}
+                    values.add(3)
+                    flag = true
+                    ratio = 0.25
+                }
+                """;
+        final CompilationCache cache = new CompilationCache(folder.getRoot().toPath());
+        final SourceFileLocation sources = SourceFileLocations.ofMap(Map.of("app", source));
+        final ByteCodeWriterOptions options = new ByteCodeWriterOptions().isMemoryImage(true).heapSize(4096);
+        final ZLCompiler.CompilationResult compiled = ZLCompiler.compile(cache, sources, "app", options);
+        final ZLCompiler.CompilationResult cached = ZLCompiler.compile(cache, sources, "app", options);
+        assertThat(cache.hitCount()).isEqualTo(1);
+
+        final Map<String, Object> globals = Interpreter.run(cached.firstZap(), cached.program());
+        assertThat(globals.keySet()).isEqualTo(Interpreter.run(compiled.firstZap(), compiled.program()).keySet());
+        assertThat(globals).containsEntry("shape", Map.of("circle", 1.5));
+        assertThat(globals).containsEntry("other", Map.of("label", "abc"));
+        assertThat(globals).containsEntry("names", "names");
+        assertThat(globals).containsEntry("flag", true);
+        assertThat(globals).containsEntry("ratio", 0.25);
+        assertThat(globals.get("numbers")).isEqualTo(new int[] { 0, 7, 0 });
+        //noinspection unchecked
+        final Map<String, Object> head = (Map<String, Object>) globals.get("head");
+        assertThat(head).containsEntry("value", 1);
+        assertThat(head.get("tags")).isEqualTo(new byte[2]);
+        //noinspection unchecked
+        assertThat((Map<String, Object>) head.get("next"))
+                .containsEntry("value", 2)
+                .containsEntry("next", null);
+        //noinspection unchecked
+        final Map<String, Object> values = (Map<String, Object>) globals.get("values");
+        assertThat(values).containsEntry("@size", 1);
+        assertThat((int[]) values.get("@array")).startsWith(3);
+    }
+}
@@ -0,0 +1,75 @@
+package net.smackem.zlang.compiler;
+
+import net.smackem.zlang.emit.bytecode.ByteCodeWriterOptions;
+import net.smackem.zlang.interpret.Interpreter;
+import net.smackem.zlang.modules.SourceFileLocation;
+import net.smackem.zlang.modules.SourceFileLocations;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ZLCompilerTest {
+    private static final String DEP = """
+            module dep
+            fn square(n: int) -> int {
+                return n * n
+            }
+            """;
+
+    @Test
+    public void compileAll() throws Exception {
+        final Map<String, String> sources = IntStream.range(1, 9)
+                .boxed()
+                .collect(Collectors.toMap(i -> "app" + i, i -> """
+                        module app%d uses dep
+                        var result: int
+                        fn main() {
+                            result = square(%d)
+                        }
+                        """.formatted(i, i)));
+        sources.put("dep", DEP);
+        final SourceFileLocation location = SourceFileLocations.ofMap(sources);
+        final List<String> moduleNames = IntStream.range(1, 9).mapToObj(i -> "app" + i).toList();
+        final List<ZLCompiler.BatchResult> results = ZLCompiler.compileAll(location, moduleNames,
+                new ByteCodeWriterOptions().isMemoryImage(true).heapSize(4096));
+        assertThat(results).extracting(ZLCompiler.BatchResult::moduleName).isEqualTo(moduleNames);
+        assertThat(results).allMatch(ZLCompiler.BatchResult::succeeded);
+        final List<Object> values = new ArrayList<>();
+        for (final ZLCompiler.BatchResult br : results) {
+            values.add(Interpreter.run(br.result().firstZap(), br.result().program()).get("result"));
+        }
+        assertThat(values).containsExactly(1, 4, 9, 16, 25, 36, 49, 64);
+    }
+
+    @Test
+    public void compileAllReportsErrorsPerProgram() {
+        final SourceFileLocation location = SourceFileLocations.ofMap(Map.of(
+                "dep", DEP,
+                "good", """
+                        module good uses dep
+                        var result: int
+                        fn main() {
+                            result = square(3)
+                        }
+                        """,
+                "bad", """
+                        module bad uses dep
+                        fn main() {
+                            result = square(3)
+                        }
+                        """));
+        final List<ZLCompiler.BatchResult> results = ZLCompiler.compileAll(location, List.of("good", "bad", "missing"),
+                new ByteCodeWriterOptions());
+        assertThat(results).extracting(ZLCompiler.BatchResult::succeeded)
+                .containsExactly(true, false, false);
+        assertThat(results.get(0).result().zaps()).hasSize(1);
+        assertThat(results.get(1).error()).isNotNull();
+        assertThat(results.get(2).error()).hasMessageContaining("missing");
+    }
+}
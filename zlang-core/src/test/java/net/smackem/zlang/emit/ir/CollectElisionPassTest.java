@@ -0,0 +1,68 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.lang.CompilationErrorException;
+import net.smackem.zlang.symbols.FunctionSymbol;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CollectElisionPassTest {
+    private static final String SOURCE = """
+            var result: int
+            fn count(n: int) -> int {
+                var total: int = 0
+                var i: int = 0
+                while i < n {
+                    total = total + i
+                    i = i + 1
+                }
+                return total
+            }
+            fn allocate(n: int) -> int {
+                var total: int = 0
+                for i: int in 0 .. n {
+                    let a: int[] = new int[i]
+                    total = total + a.size()
+                }
+                return total
+            }
+            fn main() {
+                result = count(10) + allocate(10)
+            }
+            """;
+
+    @Test
+    public void removesCollectsWithoutGarbage() throws CompilationErrorException, IOException {
+        final Program unoptimized = emit(Optimizer.none());
+        final Program program = emit(new Optimizer(List.of(new CollectElisionPass())));
+
+        assertThat(collectCount(unoptimized, "count")).isEqualTo(2);
+        assertThat(collectCount(program, "count")).isZero();
+        assertThat(collectCount(program, "main")).isZero();
+    }
+
+    @Test
+    public void keepsCollectsOfAllocatingLoops() throws CompilationErrorException, IOException {
+        final Program unoptimized = emit(Optimizer.none());
+        final Program program = emit(new Optimizer(List.of(new CollectElisionPass())));
+
+        assertThat(collectCount(program, "allocate")).isEqualTo(collectCount(unoptimized, "allocate"));
+    }
+
+    private static long collectCount(Program program, String functionName) {
+        final FunctionSymbol function = program.functionBodies().keySet().stream()
+                .filter(f -> f.name().equals(functionName))
+                .findFirst()
+                .orElseThrow();
+        return program.functionBodies().get(function).stream()
+                .filter(instr -> instr.opCode() == OpCode.Collect)
+                .count();
+    }
+
+    private static Program emit(Optimizer optimizer) throws CompilationErrorException, IOException {
+        return OptimizationPassTests.emit(SOURCE, optimizer);
+    }
+}
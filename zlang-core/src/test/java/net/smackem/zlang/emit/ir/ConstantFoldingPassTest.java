@@ -0,0 +1,46 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.lang.CompilationErrorException;
+import net.smackem.zlang.modules.ParsedModule;
+import net.smackem.zlang.modules.ParsedModules;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConstantFoldingPassTest {
+    @Test
+    public void foldsConstantsAndDeadBranches() throws CompilationErrorException, IOException {
+        final List<ParsedModule> modules = ParsedModules.single("""
+                let enabled: bool = false
+                let count: int = 3
+                var result: int
+                var text: string
+                fn main() {
+                    let base: int = 4 * 5
+                    if enabled {
+                        result = 666
+                    } else {
+                        result = base + count * 2
+                    }
+                    text = "con" + "stant"
+                }
+                """);
+        final Program program = OptimizationPassTests.emit(modules, new Optimizer(List.of(new ConstantFoldingPass())));
+        System.out.println(Instructions.print(program.instructions()));
+
+        assertThat(program.instructions())
+                .noneMatch(instr -> instr.opCode() == OpCode.Br_zero)
+                .noneMatch(instr -> instr.opCode() == OpCode.Add_i32)
+                .noneMatch(instr -> instr.opCode() == OpCode.Mul_i32)
+                .noneMatch(instr -> instr.opCode() == OpCode.Add_str)
+                .noneMatch(instr -> instr.opCode() == OpCode.Ldc_i32 && instr.intArg() == 666)
+                .anyMatch(instr -> instr.opCode() == OpCode.Ldc_i32 && instr.intArg() == 26)
+                .anyMatch(instr -> instr.opCode() == OpCode.Ldc_str && "constant".equals(instr.strArg()));
+        assertThat(program.optimizationMetrics()).hasSize(1);
+        assertThat(program.optimizationMetrics().get(0).instructionsAfter())
+                .isLessThan(program.optimizationMetrics().get(0).instructionsBefore());
+    }
+}
@@ -12,6 +12,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -40,4 +42,81 @@ public class EmitterTest {
         assertThat(program.instructions()).isNotEmpty();
         System.out.println(Instructions.print(program.instructions()));
     }
+
+    @Test
+    public void switchOverUnionUsesBranchTable() throws CompilationErrorException, IOException {
+        final List<ParsedModule> modules = ParsedModules.single("""
+                union Token {
+                    num:    int
+                    ratio:  float
+                    word:   string
+                    none:   void
+                }
+                var result: int
+                fn weight(t: Token) -> int {
+                    return switch t {
+                        num: int        -> num
+                        word: string    -> 1
+                        else            -> 3
+                    }
+                }
+                fn main() {
+                    result = weight(new Token::ratio(1.5))
+                }
+                """);
+        final ProgramStructure ps = SymbolExtractor.extractSymbols(modules, new GlobalScope(), new ArrayList<>());
+        final Program program = Emitter.emit(ps, modules, Optimizer.standard());
+        final List<Instruction> instructions = program.instructions();
+
+        assertThat(instructions).noneMatch(instr -> instr.opCode() == OpCode.Eq_u8);
+        final Instruction table = instructions.stream()
+                .filter(instr -> instr.opCode() == OpCode.BrTable)
+                .findFirst()
+                .orElseThrow();
+        final List<Label> labels = table.tableLabelArgs();
+        assertThat(labels).hasSize(4);
+        // ratio and none are handled by the else clause
+        assertThat(labels.get(1)).isSameAs(labels.get(3));
+        assertThat(labels.get(0)).isNotSameAs(labels.get(1));
+        assertThat(labels.get(2)).isNotSameAs(labels.get(1));
+        for (final Label label : labels) {
+            assertThat(label.sources()).contains(table);
+            assertThat(instructions).contains(label.target());
+        }
+    }
+
+    @Test
+    public void callsInTailPositionBecomeTailCalls() throws CompilationErrorException, IOException {
+        final List<ParsedModule> modules = ParsedModules.single("""
+                var result: int
+                fn countDown(n: int) -> int {
+                    if n == 0 {
+                        return 0
+                    }
+                    return countDown(n - 1)
+                }
+                fn factorial(n: int) -> int {
+                    if n <= 1 {
+                        return 1
+                    }
+                    return n * factorial(n - 1)
+                }
+                fn main() {
+                    result = countDown(10) + factorial(5)
+                }
+                """);
+        final ProgramStructure ps = SymbolExtractor.extractSymbols(modules, new GlobalScope(), new ArrayList<>());
+        final Program program = Emitter.emit(ps, modules, Optimizer.none());
+        final Map<String, List<Instruction>> bodies = program.functionBodies().entrySet().stream()
+                .collect(Collectors.toMap(e -> e.getKey().name(), Map.Entry::getValue));
+
+        assertThat(bodies.get("countDown"))
+                .filteredOn(instr -> instr.opCode() == OpCode.TailCall)
+                .extracting(instr -> instr.symbolArg().name())
+                .containsExactly("countDown");
+        assertThat(bodies.get("countDown")).noneMatch(instr -> instr.opCode() == OpCode.Call);
+        // the result of the call is multiplied before it is returned
+        assertThat(bodies.get("factorial")).noneMatch(instr -> instr.opCode() == OpCode.TailCall);
+        assertThat(bodies.get("main")).noneMatch(instr -> instr.opCode() == OpCode.TailCall);
+    }
 }
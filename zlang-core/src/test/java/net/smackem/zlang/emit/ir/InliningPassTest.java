@@ -0,0 +1,89 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.lang.CompilationErrorException;
+import net.smackem.zlang.modules.ParsedModule;
+import net.smackem.zlang.modules.SourceFileLocation;
+import net.smackem.zlang.modules.SourceFileLocations;
+import net.smackem.zlang.symbols.FunctionSymbol;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InliningPassTest {
+    private static final String MAIN_SOURCE = """
+            module entry uses dep
+            var result: int
+            fn main() {
+                let counter: Counter = makeCounter(2)
+                var total: int = 0
+                var i: int = 0
+                while i < 10 {
+                    total = total + counter.value() + sign(i)
+                    i = i + 1
+                }
+                result = total
+            }
+            """;
+    private static final String DEP_SOURCE = """
+            struct Counter {
+                n: int
+            }
+            fn makeCounter(n: int) -> Counter {
+                return new Counter {
+                    n = n
+                }
+            }
+            fn Counter::value() -> int {
+                return self.n
+            }
+            fn sign(x: int) -> int {
+                if x < 0 {
+                    return -1
+                }
+                return 1
+            }
+            """;
+
+    @Test
+    public void inlinesAccessorsAcrossModules() throws CompilationErrorException, IOException {
+        final Program unoptimized = emit(List.of());
+        final Program program = emit(List.of(new InliningPass(), new TreeShakingPass()));
+
+        assertThat(calledFunctions(unoptimized, "main")).contains("value");
+        assertThat(calledFunctions(program, "main")).doesNotContain("value");
+        assertThat(program.codeMap().keySet())
+                .extracting(FunctionSymbol::name)
+                .doesNotContain("value");
+    }
+
+    @Test
+    public void keepsFunctionsWithBranches() throws CompilationErrorException, IOException {
+        final Program program = emit(List.of(new InliningPass(), new TreeShakingPass()));
+
+        assertThat(calledFunctions(program, "main")).contains("sign");
+    }
+
+    private static List<String> calledFunctions(Program program, String functionName) {
+        final FunctionSymbol function = program.functionBodies().keySet().stream()
+                .filter(f -> f.name().equals(functionName))
+                .findFirst()
+                .orElseThrow();
+        return program.functionBodies().get(function).stream()
+                .filter(instr -> instr.opCode() == OpCode.Call)
+                .map(instr -> instr.symbolArg().name())
+                .toList();
+    }
+
+    private static Program emit(List<OptimizationPass> passes) throws CompilationErrorException, IOException {
+        final SourceFileLocation loc = SourceFileLocations.ofMap(Map.of(
+                "entry", MAIN_SOURCE,
+                "dep", DEP_SOURCE));
+        final Collection<ParsedModule> modules = ParsedModule.parse("entry", loc).flatten();
+        return OptimizationPassTests.emit(modules, new Optimizer(passes));
+    }
+}
@@ -0,0 +1,29 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.lang.CompilationErrorException;
+import net.smackem.zlang.modules.ParsedModule;
+import net.smackem.zlang.modules.ParsedModules;
+import net.smackem.zlang.symbols.GlobalScope;
+import net.smackem.zlang.symbols.ProgramStructure;
+import net.smackem.zlang.symbols.SymbolExtractor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OptimizationPassTests {
+    private OptimizationPassTests() { }
+
+    static Program emit(String source, Optimizer optimizer) throws CompilationErrorException, IOException {
+        return emit(ParsedModules.single(source), optimizer);
+    }
+
+    static Program emit(Collection<ParsedModule> modules, Optimizer optimizer) {
+        final Collection<String> errors = new ArrayList<>();
+        final ProgramStructure ps = SymbolExtractor.extractSymbols(modules, new GlobalScope(), errors);
+        assertThat(errors).isEmpty();
+        return Emitter.emit(ps, modules, optimizer);
+    }
+}
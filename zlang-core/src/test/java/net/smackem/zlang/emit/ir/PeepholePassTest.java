@@ -0,0 +1,71 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.lang.CompilationErrorException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PeepholePassTest {
+    private static final String SOURCE = """
+            var result: int
+            fn abs(v: int) -> int {
+                return -v if v < 0 else v
+            }
+            fn main() {
+                var i: int = 0
+                while i < 10 {
+                    if i == 5 {
+                        i = i + 2
+                    } else {
+                        i = i + 1
+                    }
+                }
+                result = {
+                    yield abs(i)
+                }
+            }
+            """;
+
+    @Test
+    public void removesRedundantInstructions() throws CompilationErrorException, IOException {
+        final Program unoptimized = emit(Optimizer.none());
+        final Program program = emit(new Optimizer(List.of(new PeepholePass())));
+        System.out.println(Instructions.print(program.instructions()));
+
+        assertThat(unoptimized.optimizationMetrics()).isEmpty();
+        assertThat(program.optimizationMetrics()).containsExactly(new PassMetrics("peephole",
+                unoptimized.instructions().size(), program.instructions().size()));
+        assertThat(program.instructions().size()).isLessThan(unoptimized.instructions().size());
+        assertThat(program.instructions()).noneMatch(instr -> instr.opCode() == OpCode.Nop);
+        assertThat(program.instructions())
+                .noneMatch(instr -> instr.opCode() == OpCode.Mov && instr.registerArg(0) == instr.registerArg(1));
+    }
+
+    @Test
+    public void keepsLabelsAndFunctionEntriesValid() throws CompilationErrorException, IOException {
+        final Program program = emit(new Optimizer(List.of(new PeepholePass())));
+        final List<Instruction> instructions = program.instructions();
+
+        assertThat(program.codeMap().values())
+                .allMatch(fc -> instructions.contains(fc.firstInstr()));
+        for (final Instruction instr : instructions) {
+            if (instr.opCode() == OpCode.Br || instr.opCode() == OpCode.Br_zero) {
+                final Label label = instr.labelArg();
+                assertThat(label.sources()).contains(instr);
+                assertThat(instructions).contains(label.target());
+                assertThat(label.target().opCode()).isNotEqualTo(OpCode.Br);
+                assertThat(label.target()).isNotSameAs(instructions.get(instructions.indexOf(instr) + 1));
+            }
+        }
+        for (final Label label : program.labels()) {
+            assertThat(label.sources()).allMatch(instructions::contains);
+        }
+    }
+
+    private static Program emit(Optimizer optimizer) throws CompilationErrorException, IOException {
+        return OptimizationPassTests.emit(SOURCE, optimizer);
+    }
+}
@@ -0,0 +1,86 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.lang.CompilationErrorException;
+import net.smackem.zlang.symbols.FunctionSymbol;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RefCountElisionPassTest {
+    private static final String SOURCE = """
+            struct Point {
+                x: int
+                y: int
+            }
+            var result: int
+            fn sum(p: Point) -> int {
+                return p.x + p.y
+            }
+            fn area(p: Point) -> int {
+                let q: Point = p
+                return q.x * q.y
+            }
+            fn twice(p: Point) -> int {
+                let q: Point = p
+                return sum(q) + sum(q)
+            }
+            fn check(p: Point) -> int {
+                if p.x < 0 {
+                    panic 1
+                }
+                return p.x
+            }
+            fn main() {
+                let p: Point = new Point {
+                    x = 1
+                    y = 2
+                }
+                result = area(p) + twice(p) + check(p)
+            }
+            """;
+
+    @Test
+    public void removesBorrowedReferences() throws CompilationErrorException, IOException {
+        final Program unoptimized = emit(List.of());
+        final Program program = emit(List.of(new CollectElisionPass(), new RefCountElisionPass()));
+
+        assertThat(count(unoptimized, "sum", OpCode.AddRef)).isEqualTo(1);
+        assertThat(count(program, "sum", OpCode.AddRef)).isZero();
+        assertThat(count(program, "sum", OpCode.RemoveRef)).isZero();
+        assertThat(count(unoptimized, "area", OpCode.AddRef)).isEqualTo(2);
+        assertThat(count(program, "area", OpCode.AddRef)).isZero();
+    }
+
+    @Test
+    public void keepsReferencesAcrossCollectingCalls() throws CompilationErrorException, IOException {
+        final Program unoptimized = emit(List.of());
+        final Program program = emit(List.of(new CollectElisionPass(), new RefCountElisionPass()));
+
+        assertThat(count(program, "twice", OpCode.AddRef)).isEqualTo(count(unoptimized, "twice", OpCode.AddRef));
+    }
+
+    @Test
+    public void keepsReferencesObservableOnPanic() throws CompilationErrorException, IOException {
+        final Program unoptimized = emit(List.of());
+        final Program program = emit(List.of(new CollectElisionPass(), new RefCountElisionPass()));
+
+        assertThat(count(program, "check", OpCode.AddRef)).isEqualTo(count(unoptimized, "check", OpCode.AddRef));
+    }
+
+    private static long count(Program program, String functionName, OpCode opCode) {
+        final FunctionSymbol function = program.functionBodies().keySet().stream()
+                .filter(f -> f.name().equals(functionName))
+                .findFirst()
+                .orElseThrow();
+        return program.functionBodies().get(function).stream()
+                .filter(instr -> instr.opCode() == opCode)
+                .count();
+    }
+
+    private static Program emit(List<OptimizationPass> passes) throws CompilationErrorException, IOException {
+        return OptimizationPassTests.emit(SOURCE, new Optimizer(passes));
+    }
+}
@@ -0,0 +1,86 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.lang.CompilationErrorException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RegisterAllocationPassTest {
+    private static final String SOURCE = """
+            var result: int
+            fn sum(a: int, b: int, c: int) -> int {
+                return a + b + c
+            }
+            fn compute(n: int) -> int {
+                let a: int = n + 1
+                let b: int = a * 2
+                let c: int = b - 3
+                var total: int = sum(a, b, c)
+                let d: int = total * 2
+                let e: int = d + 7
+                let f: int = sum(d, e, total)
+                var i: int = 0
+                while i < n {
+                    let x: int = i * i
+                    let y: int = x + f
+                    total = total + sum(x, y, i)
+                    i = i + 1
+                }
+                return total
+            }
+            fn main() {
+                result = compute(10)
+            }
+            """;
+
+    @Test
+    public void reusesRegisters() throws CompilationErrorException, IOException {
+        final Program unallocated = emit(Optimizer.none());
+        final Program program = emit(new Optimizer(List.of(new RegisterAllocationPass())));
+
+        assertThat(registerCount(program)).isLessThan(registerCount(unallocated));
+        assertThat(program.instructions().size()).isLessThanOrEqualTo(unallocated.instructions().size());
+        assertThat(program.instructions())
+                .noneMatch(instr -> instr.opCode() == OpCode.Mov && instr.registerArg(0) == instr.registerArg(1));
+    }
+
+    @Test
+    public void keepsCallArgumentsConsecutive() throws CompilationErrorException, IOException {
+        final Program program = emit(new Optimizer(List.of(new RegisterAllocationPass())));
+        final List<Instruction> instructions = program.instructions();
+
+        for (int index = 0; index < instructions.size(); index++) {
+            final Instruction instr = instructions.get(index);
+            if (instr.opCode() != OpCode.Call || instr.symbolArg().name().equals("sum") == false) {
+                continue;
+            }
+            // the arguments are moved into the argument registers right before the call,
+            // unless they have been assigned the argument registers in the first place
+            final Register firstArgument = instr.registerArg(1);
+            for (int offset = 1; offset <= 3 && instructions.get(index - offset).opCode() == OpCode.Mov; offset++) {
+                final Instruction mov = instructions.get(index - offset);
+                assertThat(mov.registerArg(0).number())
+                        .isBetween(firstArgument.number(), firstArgument.number() + 2);
+            }
+        }
+    }
+
+    private static int registerCount(Program program) {
+        int highest = 0;
+        for (final Instruction instr : program.instructions()) {
+            for (int slot = 0; slot < 3; slot++) {
+                if (instr.registerArg(slot) != null) {
+                    highest = Math.max(highest, instr.registerArg(slot).number());
+                }
+            }
+        }
+        return highest + 1;
+    }
+
+    private static Program emit(Optimizer optimizer) throws CompilationErrorException, IOException {
+        return OptimizationPassTests.emit(SOURCE, optimizer);
+    }
+}
@@ -0,0 +1,87 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.lang.CompilationErrorException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SuperinstructionPassTest {
+    private static final String SOURCE = """
+            var result: int
+            var ratio: float
+            fn main() {
+                var sum: int = 0
+                for i: int in 0 .. 100 {
+                    sum = sum + i
+                }
+                var x: float = 0.0
+                while x < 10.0 {
+                    x = x + 1.5
+                }
+                var k: int = 50
+                while k >= 0 {
+                    k = k - 2
+                }
+                result = sum + k
+                ratio = x
+            }
+            """;
+
+    @Test
+    public void fusesComparisonsAndBranches() throws CompilationErrorException, IOException {
+        final Program program = emit(true);
+
+        assertThat(count(program, OpCode.Br_zero)).isZero();
+        assertThat(count(program, OpCode.Brf_lt_i32)).isEqualTo(1);
+        assertThat(count(program, OpCode.Brf_lt_f64)).isEqualTo(1);
+        assertThat(count(program, OpCode.Brf_ge_i32)).isEqualTo(1);
+        assertThat(count(program, OpCode.Lt_i32)).isZero();
+        assertThat(count(program, OpCode.Lt_f64)).isZero();
+        assertThat(count(program, OpCode.Ge_i32)).isZero();
+    }
+
+    @Test
+    public void fusesAddImmediate() throws CompilationErrorException, IOException {
+        final Program program = emit(true);
+
+        assertThat(program.instructions())
+                .filteredOn(instr -> instr.opCode() == OpCode.Addi_i32)
+                .extracting(Instruction::intArg)
+                .containsExactly(-2L);
+        assertThat(count(program, OpCode.Sub_i32)).isZero();
+    }
+
+    @Test
+    public void fusesLoopBackEdges() throws CompilationErrorException, IOException {
+        final Program unoptimized = emit(false);
+        final Program program = emit(true);
+
+        assertThat(count(program, OpCode.Loop_lt_i32)).isEqualTo(1);
+        assertThat(count(program, OpCode.Br)).isEqualTo(count(unoptimized, OpCode.Br) - 1);
+        final Instruction loop = program.instructions().stream()
+                .filter(instr -> instr.opCode() == OpCode.Loop_lt_i32)
+                .findFirst()
+                .orElseThrow();
+        // branches back to the loop body, behind the loop condition
+        assertThat(loop.labelArg().target().opCode()).isEqualTo(OpCode.Add_i32);
+        assertThat(loop.labelArg().sources()).containsExactly(loop);
+    }
+
+    private static long count(Program program, OpCode opCode) {
+        return program.instructions().stream()
+                .filter(instr -> instr.opCode() == opCode)
+                .count();
+    }
+
+    private static Program emit(boolean fuse) throws CompilationErrorException, IOException {
+        final List<OptimizationPass> passes = new ArrayList<>(List.of(new CollectElisionPass(), new PeepholePass()));
+        if (fuse) {
+            passes.add(new SuperinstructionPass());
+        }
+        return OptimizationPassTests.emit(SOURCE, new Optimizer(passes));
+    }
+}
@@ -0,0 +1,95 @@
+package net.smackem.zlang.emit.ir;
+
+import net.smackem.zlang.lang.CompilationErrorException;
+import net.smackem.zlang.symbols.FunctionSymbol;
+import net.smackem.zlang.symbols.Type;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TreeShakingPassTest {
+    private static final String SOURCE = """
+            interface Getter {
+                fn get() -> int
+            }
+            interface Unused {
+                fn unused() -> int
+            }
+            struct Used {
+                x: int
+            } is Getter
+            fn Used::get() -> int {
+                return self.x + helper()
+            }
+            struct NeverCreated {
+                x: int
+            } is Getter
+            fn NeverCreated::get() -> int {
+                return self.x
+            }
+            fn helper() -> int {
+                return 1
+            }
+            fn deadHelper() -> int {
+                return 2
+            }
+            fn dead() -> int {
+                return deadHelper()
+            }
+            let initValue: int = helper()
+            var result: int
+            fn main() {
+                let getter: Getter = new Used {
+                    x = 41
+                }
+                result = getter.get()
+            }
+            """;
+
+    @Test
+    public void removesUnreachableFunctions() throws CompilationErrorException, IOException {
+        final Program unoptimized = emit(Optimizer.none());
+        final Program program = emit(new Optimizer(List.of(new TreeShakingPass())));
+
+        assertThat(functionNames(unoptimized)).contains("dead", "deadHelper", "get");
+        assertThat(functionNames(program))
+                .contains("main", "helper", "get")
+                .doesNotContain("dead", "deadHelper");
+        assertThat(program.codeMap().keySet().stream()
+                .filter(f -> f.name().equals("get"))
+                .count()).isEqualTo(1);
+        assertThat(program.instructions().size()).isLessThan(unoptimized.instructions().size());
+        assertThat(program.codeMap().values())
+                .allMatch(fc -> program.instructions().contains(fc.firstInstr()));
+    }
+
+    @Test
+    public void removesUnusedTypes() throws CompilationErrorException, IOException {
+        final Program unoptimized = emit(Optimizer.none());
+        final Program program = emit(new Optimizer(List.of(new TreeShakingPass())));
+
+        assertThat(typeNames(unoptimized)).contains("Getter", "Unused", "Used", "NeverCreated");
+        assertThat(typeNames(program))
+                .contains("Getter", "Used")
+                .doesNotContain("Unused", "NeverCreated");
+    }
+
+    private static List<String> functionNames(Program program) {
+        return program.codeMap().keySet().stream()
+                .map(FunctionSymbol::name)
+                .toList();
+    }
+
+    private static List<String> typeNames(Program program) {
+        return program.types().stream()
+                .map(Type::typeName)
+                .toList();
+    }
+
+    private static Program emit(Optimizer optimizer) throws CompilationErrorException, IOException {
+        return OptimizationPassTests.emit(SOURCE, optimizer);
+    }
+}
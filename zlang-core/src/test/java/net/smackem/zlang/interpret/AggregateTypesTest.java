@@ -318,4 +318,32 @@ public class AggregateTypesTest {
         final Map<String, Object> globals = run(modules);
         assertThat(globals.get("resultN")).isEqualTo(123);
     }
+
+    @Test
+    public void switchOverUnionDispatchesByFlag() throws Exception {
+        final List<ParsedModule> modules = ParsedModules.single("""
+                union Token {
+                    num:    int
+                    ratio:  float
+                    word:   string
+                    flag:   bool
+                    none:   void
+                }
+                var total: int
+                fn weight(t: Token) -> int {
+                    return switch t {
+                        none: void      -> 1000
+                        word: string    -> 10
+                        num: int        -> num
+                        ratio: float    -> 100
+                        else            -> 5
+                    }
+                }
+                fn main() {
+                    total = weight(new Token::num(7)) + weight(new Token::ratio(1.5)) + weight(new Token::word("x")) + weight(new Token::flag(true)) + weight(new Token::none())
+                }
+                """);
+        final Map<String, Object> globals = run(modules);
+        assertThat(globals.get("total")).isEqualTo(7 + 100 + 10 + 5 + 1000);
+    }
 }
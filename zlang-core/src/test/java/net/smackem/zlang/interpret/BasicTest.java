@@ -1,5 +1,6 @@
 package net.smackem.zlang.interpret;
 
+import net.smackem.zlang.emit.ir.Optimizer;
 import net.smackem.zlang.modules.ParsedModule;
 import net.smackem.zlang.modules.ParsedModules;
 import net.smackem.zlang.modules.SourceFileLocation;
@@ -158,6 +159,103 @@ public class BasicTest {
         assertThat(globals.get("result")).isEqualTo(new int[] { 1, 1, 0, 0 });
     }
 
+    @Test
+    public void staticTypeChecks() throws Exception {
+        final List<ParsedModule> modules = ParsedModules.single("""
+                interface MyInterface {
+                }
+                interface OtherInterface {
+                }
+                struct MyStruct {
+                    f: int
+                } is MyInterface
+                struct OtherStruct {
+                    f: int
+                }
+                var result: bool[]
+                fn main() {
+                    let s: MyStruct = new MyStruct{}
+                    let n: MyStruct = nil
+                    result = new bool[] {
+                        s is MyStruct,
+                        s is MyInterface,
+                        n is MyStruct,
+                        n is MyInterface,
+                        s is OtherStruct,
+                        s is OtherInterface
+                    }
+                }
+                """);
+        final Map<String, Object> globals = run(modules);
+        assertThat(globals.get("result")).isEqualTo(new int[] { 1, 1, 0, 0, 0, 0 });
+    }
+
+    @Test
+    public void typeChecksAfterCast() throws Exception {
+        final List<ParsedModule> modules = ParsedModules.single("""
+                interface Getter {
+                    fn get() -> int
+                }
+                struct A {
+                    f: int
+                } is Getter
+                struct B {
+                    f: int
+                } is Getter
+                fn A::get() -> int {
+                    return self.f
+                }
+                fn B::get() -> int {
+                    return self.f
+                }
+                var result: bool[]
+                fn main() {
+                    let g: Getter = new A {
+                        f = 1
+                    }
+                    let b: B = (B) g
+                    result = new bool[] {
+                        g is B,
+                        b is B,
+                        b is A,
+                        b is Getter,
+                        new B{} is B,
+                        new B{} is A
+                    }
+                }
+                """);
+        final Map<String, Object> globals = run(modules);
+        assertThat(globals.get("result")).isEqualTo(new int[] { 0, 0, 1, 1, 1, 0 });
+    }
+
+    @Test
+    public void runtimeTypeChecksWithManyTypes() throws Exception {
+        final StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            source.append("interface I%d {\n}\n".formatted(i));
+        }
+        source.append("""
+                struct MyStruct {
+                    f: int
+                } is I0, I39
+                var result: bool[]
+                fn main() {
+                    let obj: object = new MyStruct{}
+                    result = new bool[] {
+                        obj is MyStruct,
+                        obj is I0,
+                        obj is I1,
+                        obj is I31,
+                        obj is I32,
+                        obj is I39
+                    }
+                }
+                """);
+        final List<ParsedModule> modules = ParsedModules.single(source.toString());
+        final Map<String, Object> globals = run(modules);
+        assertThat(globals.get("result")).isEqualTo(new int[] { 1, 1, 0, 0, 0, 1 });
+    }
+
     @Test
     public void nestedBlockExpr() throws Exception {
         final List<ParsedModule> modules = ParsedModules.single("""
@@ -281,4 +379,108 @@ public class BasicTest {
         assertThat(globals.get("numberB")).isEqualTo(0xffff);
         assertThat(globals.get("numberC")).isEqualTo(-0xff);
     }
+
+    @Test
+    public void constantFolding() throws Exception {
+        final List<ParsedModule> modules = ParsedModules.single("""
+                let factor: int = 3
+                let verbose: bool = false
+                let scale: float = 0.5
+                var ints: int[]
+                var bytes: byte[]
+                var floats: float[]
+                var bools: bool[]
+                var text: string
+                var counter: int
+                fn main() {
+                    let base: int = 2 * 10 / 2 - 5 + 1
+                    ints = new int[] {
+                        base * factor,
+                        -7 / 2,
+                        -7 % 3,
+                        1 << 4 | 3,
+                        0xff & 0x0f ^ 1,
+                        -16 >> 2,
+                        (int) 7.9,
+                        (int) (byte) 300
+                    }
+                    bytes = new byte[] {
+                        (byte) 200 + (byte) 100,
+                        (byte) 5 - (byte) 10,
+                        (byte) 1 << (byte) 9
+                    }
+                    floats = new float[] {
+                        scale * 4.0 + 1.0,
+                        (float) factor / 2.0,
+                        7.5 % 2.0
+                    }
+                    bools = new bool[] {
+                        factor > 2 and scale < 1.0,
+                        not verbose,
+                        factor == 4 or 1.0 >= 2.0
+                    }
+                    text = "con" + "stant" + "!"
+                    var i: int = 0
+                    while i < 10 {
+                        if verbose {
+                            counter = counter + 1000
+                        } else {
+                            counter = counter + factor * 2
+                        }
+                        i = i + 1
+                    }
+                }
+                """);
+        final Map<String, Object> globals = run(modules);
+        final Map<String, Object> unoptimizedGlobals = run(modules, Optimizer.none());
+        for (final String name : unoptimizedGlobals.keySet()) {
+            assertThat(globals.get(name)).as(name).isEqualTo(unoptimizedGlobals.get(name));
+        }
+        final int[] ints = (int[]) globals.get("ints");
+        assertThat(ints[0]).isEqualTo((2 * 10 / 2 - 5 + 1) * 3);
+        assertThat(ints[3]).isEqualTo(1 << 4 | 3);
+        assertThat(ints[4]).isEqualTo(0xff & 0x0f ^ 1);
+        assertThat(ints[6]).isEqualTo(7);
+        assertThat(ints[7]).isEqualTo(300 & 0xff);
+        assertThat(globals.get("bytes")).isEqualTo(new byte[] { (byte) 44, (byte) 251, (byte) 0 });
+        assertThat(globals.get("floats")).isEqualTo(new double[] { 3.0, 1.5, 1.0 });
+        assertThat(globals.get("bools")).isEqualTo(new int[] { 1, 1, 0 });
+        assertThat(globals.get("text")).isEqualTo("constant!");
+        assertThat(globals.get("counter")).isEqualTo(60);
+    }
+
+    @Test
+    public void constantGlobalsReadBeforeInitialization() throws Exception {
+        final List<ParsedModule> modules = ParsedModules.single("""
+                let a: int = getB()
+                let c: int = getBIndirectly()
+                let d: int = getBByTailCall()
+                let b: int = 5
+                var r: int
+                fn getB() -> int {
+                    return b
+                }
+                fn getBIndirectly() -> int {
+                    return getB() + 1
+                }
+                fn getBByTailCall() -> int {
+                    return readB()
+                }
+                fn readB() -> int {
+                    return b
+                }
+                fn main() {
+                    r = a + c + d
+                }
+                """);
+        final Map<String, Object> globals = run(modules);
+        final Map<String, Object> unoptimizedGlobals = run(modules, Optimizer.none());
+        assertThat(unoptimizedGlobals).contains(
+                Map.entry("a", 0),
+                Map.entry("c", 1),
+                Map.entry("d", 0),
+                Map.entry("b", 5),
+                Map.entry("r", 1));
+        assertThat(globals).isEqualTo(unoptimizedGlobals);
+    }
 }
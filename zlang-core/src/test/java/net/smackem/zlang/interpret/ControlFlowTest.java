@@ -146,4 +146,191 @@ public class ControlFlowTest {
         final Map<String, Object> globals = run(modules);
         assertThat(globals.get("result")).isEqualTo(6);
     }
+
+    @Test
+    public void nestedBranchesInLoop() throws Exception {
+        final List<ParsedModule> modules = ParsedModules.single("""
+                var evens: int
+                var odds: int
+                var small: int
+                fn classify(n: int) -> int {
+                    return 0 if n % 2 == 0 else 1
+                }
+                fn main() {
+                    var i: int = 0
+                    while i < 20 {
+                        if classify(i) == 0 {
+                            if i < 10 {
+                                small = small + 1
+                            } else {
+                            }
+                            evens = evens + 1
+                        } else {
+                            odds = odds + 1
+                        }
+                        i = i + 1
+                    }
+                }
+                """);
+        final Map<String, Object> globals = run(modules);
+        assertThat(globals.get("evens")).isEqualTo(10);
+        assertThat(globals.get("odds")).isEqualTo(10);
+        assertThat(globals.get("small")).isEqualTo(5);
+    }
+
+    @Test
+    public void fusedComparisonsAndLoops() throws Exception {
+        final List<ParsedModule> modules = ParsedModules.single("""
+                var ints: int
+                var floats: int
+                var bytes: int
+                var stepped: int
+                var empty: int
+                var nested: int
+                var countdown: int
+                fn compareInts(a: int, b: int) -> int {
+                    var mask: int = 0
+                    if a == b {
+                        mask = mask + 1
+                    }
+                    if a != b {
+                        mask = mask + 2
+                    }
+                    if a > b {
+                        mask = mask + 4
+                    }
+                    if a >= b {
+                        mask = mask + 8
+                    }
+                    if a < b {
+                        mask = mask + 16
+                    }
+                    if a <= b {
+                        mask = mask + 32
+                    }
+                    return mask
+                }
+                fn compareFloats(a: float, b: float) -> int {
+                    var mask: int = 0
+                    if a == b {
+                        mask = mask + 1
+                    }
+                    if a != b {
+                        mask = mask + 2
+                    }
+                    if a > b {
+                        mask = mask + 4
+                    }
+                    if a >= b {
+                        mask = mask + 8
+                    }
+                    if a < b {
+                        mask = mask + 16
+                    }
+                    if a <= b {
+                        mask = mask + 32
+                    }
+                    return mask
+                }
+                fn compareBytes(a: byte, b: byte) -> int {
+                    var mask: int = 0
+                    if a == b {
+                        mask = mask + 1
+                    }
+                    if a != b {
+                        mask = mask + 2
+                    }
+                    if a > b {
+                        mask = mask + 4
+                    }
+                    if a >= b {
+                        mask = mask + 8
+                    }
+                    if a < b {
+                        mask = mask + 16
+                    }
+                    if a <= b {
+                        mask = mask + 32
+                    }
+                    return mask
+                }
+                fn main() {
+                    ints = compareInts(1, 2) * 10000 + compareInts(2, 2) * 100 + compareInts(3, 2)
+                    floats = compareFloats(1.0, 2.0) * 10000 + compareFloats(2.0, 2.0) * 100 + compareFloats(3.0, 2.0)
+                    bytes = compareBytes((byte) 1, (byte) 2) * 10000 + compareBytes((byte) 2, (byte) 2) * 100 + compareBytes((byte) 3, (byte) 2)
+                    for i: int in 0 .. 3 .. 10 {
+                        stepped = stepped + i
+                    }
+                    for i: int in 5 .. 5 {
+                        empty = empty + 1
+                    }
+                    for i: int in 0 .. 4 {
+                        for j: int in 0 .. i {
+                            nested = nested + 1
+                        }
+                    }
+                    var k: int = 20
+                    while k > 0 {
+                        countdown = countdown + 1
+                        k = k - 3
+                    }
+                }
+                """);
+        final Map<String, Object> globals = run(modules);
+        assertThat(globals.get("ints")).isEqualTo(50 * 10000 + 41 * 100 + 14);
+        assertThat(globals.get("floats")).isEqualTo(50 * 10000 + 41 * 100 + 14);
+        assertThat(globals.get("bytes")).isEqualTo(50 * 10000 + 41 * 100 + 14);
+        assertThat(globals.get("stepped")).isEqualTo(0 + 3 + 6 + 9);
+        assertThat(globals.get("empty")).isEqualTo(0);
+        assertThat(globals.get("nested")).isEqualTo(0 + 1 + 2 + 3);
+        assertThat(globals.get("countdown")).isEqualTo(7);
+    }
+
+    @Test
+    public void shortCircuitEvaluation() throws Exception {
+        final List<ParsedModule> modules = ParsedModules.single("""
+                struct Point {
+                    x: int
+                }
+                var calls: int
+                var guarded: int
+                var either: int
+                var value: bool
+                var iterations: int
+                fn touch(result: bool) -> bool {
+                    calls = calls + 1
+                    return result
+                }
+                fn positive(p: Point) -> bool {
+                    return p != nil and p.x > 0
+                }
+                fn main() {
+                    let none: Point = nil
+                    let some: Point = new Point {
+                        x = 1
+                    }
+                    if positive(none) == false and positive(some) {
+                        guarded = 1
+                    }
+                    if touch(true) or touch(true) {
+                        either = either + 1
+                    }
+                    if touch(false) and touch(true) {
+                        either = either + 10
+                    }
+                    value = touch(false) or touch(true) and touch(false)
+                    var i: int = 0
+                    while i < 5 and touch(true) {
+                        i = i + 1
+                    }
+                    iterations = i
+                }
+                """);
+        final Map<String, Object> globals = run(modules);
+        assertThat(globals.get("guarded")).isEqualTo(1);
+        assertThat(globals.get("either")).isEqualTo(1);
+        assertThat(globals.get("value")).isEqualTo(false);
+        assertThat(globals.get("iterations")).isEqualTo(5);
+        assertThat(globals.get("calls")).isEqualTo(1 + 1 + 3 + 5);
+    }
 }
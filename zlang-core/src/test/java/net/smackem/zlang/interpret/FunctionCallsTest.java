@@ -11,6 +11,7 @@ import java.util.Map;
 
 import static net.smackem.zlang.interpret.InterpreterTests.run;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class FunctionCallsTest {
 
@@ -310,4 +311,147 @@ public class FunctionCallsTest {
         final Map<String, Object> globals = run(modules);
         assertThat(globals.get("a")).isEqualTo(55);
     }
+
+    @Test
+    public void functionWithManyLocals() throws Exception {
+        final StringBuilder source = new StringBuilder("""
+                var total: int
+                fn add(a: int, b: int) -> int {
+                    return a + b
+                }
+                fn main() {
+                    var sum: int = 0
+                """);
+        for (int i = 0; i < 100; i++) {
+            source.append("    let v%d: int = add(sum, %d)\n".formatted(i, i));
+            source.append("    sum = v%d\n".formatted(i));
+        }
+        source.append("""
+                    total = sum
+                }
+                """);
+        final List<ParsedModule> modules = ParsedModules.single(source.toString());
+        final Map<String, Object> globals = run(modules);
+        assertThat(globals.get("total")).isEqualTo(99 * 100 / 2);
+    }
+
+    @Test
+    public void functionWithTooManyLocals() throws Exception {
+        final StringBuilder source = new StringBuilder("""
+                var total: int
+                fn main() {
+                """);
+        for (int i = 0; i < 300; i++) {
+            source.append("    let v%d: int = %d\n".formatted(i, i));
+        }
+        source.append("    total = v299\n}\n");
+        final List<ParsedModule> modules = ParsedModules.single(source.toString());
+        assertThatThrownBy(() -> run(modules))
+                .hasMessageContaining("entry 2:0")
+                .hasMessageContaining("function 'main' needs more than 256 registers");
+    }
+
+    @Test
+    public void callWithTooManyArgumentRegisters() throws Exception {
+        // the callee fits into the registers, but the caller needs a register for each argument
+        // in addition to its own locals
+        final int parameterCount = 250;
+        final StringBuilder source = new StringBuilder("var total: int\nfn f(");
+        for (int i = 0; i < parameterCount; i++) {
+            source.append(i > 0 ? ", " : "").append("p%d: int".formatted(i));
+        }
+        source.append(") -> int {\n    return p0\n}\nfn main() {\n");
+        for (int i = 0; i < 10; i++) {
+            source.append("    let v%d: int = %d\n".formatted(i, i));
+        }
+        source.append("    total = f(");
+        for (int i = 0; i < parameterCount; i++) {
+            source.append(i > 0 ? ", " : "").append(i);
+        }
+        source.append(")\n}\n");
+        final List<ParsedModule> modules = ParsedModules.single(source.toString());
+        assertThatThrownBy(() -> run(modules))
+                .hasMessageContaining("function 'main' needs more than 256 registers");
+    }
+
+    @Test
+    public void inlinedAccessorsAcrossModules() throws Exception {
+        final String mainSource = """
+                module entry uses dep
+                var total: int
+                var count: int
+                fn main() {
+                    let point: Point = makePoint(3, 4)
+                    var i: int = 0
+                    while i < 10 {
+                        total = total + point.getX() * point.getY()
+                        point.moveBy(1)
+                        i = i + 1
+                    }
+                    count = point.getX()
+                }
+                """;
+        final String depSource = """
+                struct Point {
+                    x: int
+                    y: int
+                }
+                fn makePoint(x: int, y: int) -> Point {
+                    return new Point {
+                        x = x
+                        y = y
+                    }
+                }
+                fn Point::getX() -> int {
+                    return self.x
+                }
+                fn Point::getY() -> int {
+                    return self.y
+                }
+                fn Point::moveBy(delta: int) {
+                    self.x = self.x + delta
+                }
+                """;
+        final SourceFileLocation loc = SourceFileLocations.ofMap(Map.of(
+                "entry", mainSource,
+                "dep", depSource));
+        final ParsedModule module = ParsedModule.parse("entry", loc);
+        final Map<String, Object> globals = run(module.flatten());
+        assertThat(globals.get("total")).isEqualTo(4 * (3 + 4 + 5 + 6 + 7 + 8 + 9 + 10 + 11 + 12));
+        assertThat(globals.get("count")).isEqualTo(13);
+    }
+
+    @Test
+    public void tailCallsReuseStackFrame() throws Exception {
+        final List<ParsedModule> modules = ParsedModules.single("""
+                var sum: int
+                var even: bool
+                fn sumUpTo(n: int, acc: int) -> int {
+                    if n == 0 {
+                        return acc
+                    }
+                    return sumUpTo(n - 1, acc + n)
+                }
+                fn isEven(n: int) -> bool {
+                    if n == 0 {
+                        return true
+                    }
+                    return isOdd(n - 1)
+                }
+                fn isOdd(n: int) -> bool {
+                    if n == 0 {
+                        return false
+                    }
+                    return isEven(n - 1)
+                }
+                fn main() {
+                    sum = sumUpTo(10000, 0)
+                    even = isEven(1001)
+                }
+                """);
+        // the call stack would overflow without tail calls
+        final Map<String, Object> globals = run(modules);
+        assertThat(globals.get("sum")).isEqualTo(10000 * 10001 / 2);
+        assertThat(globals.get("even")).isEqualTo(false);
+    }
 }
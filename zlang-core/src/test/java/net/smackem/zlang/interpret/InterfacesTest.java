@@ -286,4 +286,114 @@ public class InterfacesTest {
         final Map<String, Object> globals = run(modules);
         assertThat(globals.get("result")).isEqualTo(60.0);
     }
+
+    @Test
+    public void dynamicDispatchWithSharedItableSlots() throws Exception {
+        final List<ParsedModule> modules = ParsedModules.single("""
+                interface A {
+                    fn a() -> int
+                }
+                interface B {
+                    fn b1() -> int
+                    fn b2() -> int
+                }
+                interface C {
+                    fn c() -> int
+                }
+
+                struct X {
+                    x: int
+                } is A, B
+                fn X::a() -> int {
+                    return self.x + 1
+                }
+                fn X::b1() -> int {
+                    return self.x + 2
+                }
+                fn X::b2() -> int {
+                    return self.x + 3
+                }
+
+                struct Y {
+                    y: int
+                } is B, C
+                fn Y::b1() -> int {
+                    return self.y + 4
+                }
+                fn Y::b2() -> int {
+                    return self.y + 5
+                }
+                fn Y::c() -> int {
+                    return self.y + 6
+                }
+
+                struct Z {
+                    z: int
+                } is C
+                fn Z::c() -> int {
+                    return self.z + 7
+                }
+
+                var result: int
+                fn main() {
+                    let xa: A = new X {
+                        x = 100
+                    }
+                    let xb: B = new X {
+                        x = 200
+                    }
+                    let yb: B = new Y {
+                        y = 300
+                    }
+                    let yc: C = new Y {
+                        y = 400
+                    }
+                    let zc: C = new Z {
+                        z = 500
+                    }
+                    result = xa.a() + xb.b1() + xb.b2() + yb.b1() + yb.b2() + yc.c() + zc.c()
+                }
+                """);
+        final Map<String, Object> globals = run(modules);
+        assertThat(globals.get("result")).isEqualTo(101 + 202 + 203 + 304 + 305 + 406 + 507);
+    }
+
+    @Test
+    public void dispatchWithUnusedImplementations() throws Exception {
+        final List<ParsedModule> modules = ParsedModules.single("""
+                interface Getter {
+                    fn get() -> int
+                }
+                struct Unused {
+                    x: int
+                } is Getter
+                fn Unused::get() -> int {
+                    return -1
+                }
+                struct Used {
+                    x: int
+                } is Getter
+                fn Used::get() -> int {
+                    return self.x
+                }
+                struct Other {
+                    x: int
+                } is Getter
+                fn Other::get() -> int {
+                    return self.x * 2
+                }
+                var result: int
+                fn main() {
+                    let a: Getter = new Used {
+                        x = 100
+                    }
+                    let b: Getter = new Other {
+                        x = 10
+                    }
+                    result = a.get() + b.get()
+                }
+                """);
+        final Map<String, Object> globals = run(modules);
+        assertThat(globals.get("result")).isEqualTo(120);
+    }
 }
@@ -7,6 +7,7 @@ import net.smackem.zlang.emit.bytecode.ByteCodeWriterOptions;
 import net.smackem.zlang.emit.bytecode.HeapEntry;
 import net.smackem.zlang.emit.ir.Emitter;
 import net.smackem.zlang.emit.ir.Instructions;
+import net.smackem.zlang.emit.ir.Optimizer;
 import net.smackem.zlang.emit.ir.Program;
 import net.smackem.zlang.modules.ParsedModule;
 import net.smackem.zlang.symbols.GlobalScope;
@@ -29,7 +30,11 @@ class InterpreterTests {
     private InterpreterTests() { }
 
     static Map<String, Object> run(Collection<ParsedModule> modules) throws Exception {
-        final ZLCompiler.CompilationResult result = compile(modules);
+        return run(modules, Optimizer.standard());
+    }
+
+    static Map<String, Object> run(Collection<ParsedModule> modules, Optimizer optimizer) throws Exception {
+        final ZLCompiler.CompilationResult result = compile(modules, defaultOptions(), optimizer);
         return Interpreter.run(result.firstZap(), result.program());
     }
 
@@ -52,19 +57,28 @@ class InterpreterTests {
     }
 
     private static ZLCompiler.CompilationResult compile(Collection<ParsedModule> modules) throws Exception {
-        final ByteCodeWriterOptions options = new ByteCodeWriterOptions()
+        return compile(modules, defaultOptions());
+    }
+
+    private static ByteCodeWriterOptions defaultOptions() {
+        return new ByteCodeWriterOptions()
                 .isMemoryImage(true)
                 .heapSize(HEAP_SIZE)
                 .hasHeapSizeLimit(true)
                 .maxStackDepth(maxStackDepth);
-        return compile(modules, options);
     }
 
     private static ZLCompiler.CompilationResult compile(Collection<ParsedModule> modules, ByteCodeWriterOptions options) throws Exception {
+        return compile(modules, options, Optimizer.standard());
+    }
+
+    private static ZLCompiler.CompilationResult compile(Collection<ParsedModule> modules,
+                                                        ByteCodeWriterOptions options,
+                                                        Optimizer optimizer) throws Exception {
         final Collection<String> errors = new ArrayList<>();
         final ProgramStructure ps = SymbolExtractor.extractSymbols(modules, new GlobalScope(), errors);
         assertThat(errors).isEmpty();
-        final Program program = Emitter.emit(ps, modules);
+        final Program program = Emitter.emit(ps, modules, optimizer);
         final ByteCodeWriter writer = new ByteCodeWriter();
         final ByteBuffer zap = writer.writeProgram(program, options);
         assertThat(zap.isDirect()).isEqualTo(options.isMemoryImage());
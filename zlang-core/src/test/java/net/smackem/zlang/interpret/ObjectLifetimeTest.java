@@ -318,4 +318,36 @@ public class ObjectLifetimeTest {
         System.out.println(heap);
         // no VM crash (out of memory) expected
     }
+
+    @Test
+    public void tailCallsReleaseReferences() throws Exception {
+        final List<ParsedModule> modules = ParsedModules.single("""
+                struct Node {
+                    value: int
+                    next: Node
+                }
+                var total: int
+                fn sum(node: Node, acc: int) -> int {
+                    if node == nil {
+                        return acc
+                    }
+                    let value: int[] = new int[1]
+                    value[0] = node.value
+                    return sum(node.next, acc + value[0])
+                }
+                fn main() {
+                    var head: Node = nil
+                    for i: int in 0 .. 40 {
+                        head = new Node {
+                            value = i
+                            next = head
+                        }
+                    }
+                    total = sum(head, 0)
+                }
+                """);
+        final Collection<HeapEntry> heap = runExtractingHeap(modules);
+        assertThat(heap).extracting(HeapEntry::refCount)
+                .containsOnly(ByteCode.FREE_HEAP_ENTRY_REF_COUNT);
+    }
 }
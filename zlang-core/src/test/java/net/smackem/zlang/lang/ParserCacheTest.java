@@ -0,0 +1,47 @@
+package net.smackem.zlang.lang;
+
+import net.smackem.zlang.compiler.ZLCompiler;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParserCacheTest {
+    private static final String SOURCE = """
+            module main
+            fn main() {
+                let x: int = 1 + 2 * 3
+                if x > 5 {
+                    print(x)
+                }
+            }
+            """;
+
+    @Test
+    public void cachesGrowWhileParsing() {
+        final ParserCache cache = new ParserCache(Integer.MAX_VALUE);
+        assertThat(cache.parserDfaStateCount()).isZero();
+        assertThat(cache.lexerDfaStateCount()).isZero();
+        SyntaxTree.parse(CharStreams.fromString(SOURCE), new BaseErrorListener(), true, cache);
+        assertThat(cache.parserDfaStateCount()).isPositive();
+        assertThat(cache.lexerDfaStateCount()).isPositive();
+        assertThat(cache.resetCount()).isZero();
+    }
+
+    @Test
+    public void cachesAreDiscardedWhenBudgetIsExceeded() {
+        final ParserCache cache = new ParserCache(10);
+        SyntaxTree.parse(CharStreams.fromString(SOURCE), new BaseErrorListener(), true, cache);
+        assertThat(cache.resetCount()).isEqualTo(1);
+        assertThat(cache.parserDfaStateCount()).isZero();
+        assertThat(cache.lexerDfaStateCount()).isZero();
+        assertThat(cache.predictionContextCount()).isZero();
+    }
+
+    @Test
+    public void warmUp() throws Exception {
+        ZLCompiler.warmUp();
+        assertThat(ParserCache.shared().parserDfaStateCount()).isPositive();
+    }
+}
@@ -0,0 +1,63 @@
+package net.smackem.zlang.lang;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SyntaxTreeTest {
+    @Test
+    public void twoStageYieldsSameTreeAsFullLL() throws IOException {
+        final List<Path> samples;
+        try (final Stream<Path> paths = Files.list(Path.of(".."))) {
+            samples = paths.filter(p -> p.toString().endsWith(".zlang")).collect(Collectors.toList());
+        }
+        assertThat(samples).isNotEmpty();
+        for (final Path sample : samples) {
+            assertSameTrees(sample);
+        }
+    }
+
+    @Test
+    public void twoStageYieldsSameTreeAsFullLLForStdModules() throws IOException, URISyntaxException {
+        final List<Path> modules;
+        try (final Stream<Path> paths = Files.list(Path.of(SyntaxTreeTest.class.getResource("/lib").toURI()))) {
+            modules = paths.filter(p -> p.toString().endsWith(".zl")).collect(Collectors.toList());
+        }
+        assertThat(modules).isNotEmpty();
+        for (final Path module : modules) {
+            assertSameTrees(module);
+        }
+    }
+
+    private static void assertSameTrees(Path path) throws IOException {
+        final String source = Files.readString(path);
+        final ZLangParser.ModuleContext ll = SyntaxTree.parse(CharStreams.fromString(source), new BaseErrorListener(), false);
+        final ZLangParser.ModuleContext twoStage = SyntaxTree.parse(CharStreams.fromString(source), new BaseErrorListener(), true);
+        assertThat(twoStage.toStringTree()).as(path.toString()).isEqualTo(ll.toStringTree());
+    }
+
+    @Test
+    public void syntaxErrorsAreReported() {
+        final String source = """
+                fn main() {
+                    let x: int = (1 + 2
+                }
+                """;
+        assertThatThrownBy(() -> SyntaxTree.parse("main", new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(CompilationErrorException.class)
+                .hasMessageContaining("file main line 2");
+    }
+}
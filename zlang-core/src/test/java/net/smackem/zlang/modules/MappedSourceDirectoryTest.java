@@ -0,0 +1,38 @@
+package net.smackem.zlang.modules;
+
+import net.smackem.zlang.lang.CompilationErrorException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedSourceDirectoryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void loadMappedModules() throws IOException, CompilationErrorException {
+        final Path root = folder.getRoot().toPath();
+        Files.writeString(root.resolve("main.zl"), "module main uses dep\nlet text: string = \"grüße\"\n");
+        Files.writeString(root.resolve("dep.zl"), "module dep\n");
+        final ParsedModule pm = ParsedModule.parse("main", new MappedSourceDirectory(root, "zl"));
+        assertThat(pm.dependencies()).extracting(ParsedModule::moduleName)
+                .containsExactly("dep");
+        assertThat(pm.sourceHash())
+                .isEqualTo(ParsedModule.parse("main", new SourceDirectory(root, "zl")).sourceHash());
+    }
+
+    @Test
+    public void missingModule() {
+        final Path root = folder.getRoot().toPath();
+        assertThatThrownBy(() -> ParsedModule.parse("main", new MappedSourceDirectory(root, "zl")))
+                .isInstanceOf(NoSuchFileException.class);
+    }
+}
@@ -3,11 +3,15 @@ package net.smackem.zlang.modules;
 import net.smackem.zlang.lang.CompilationErrorException;
 import org.junit.Test;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class ParsedModuleTest {
     @Test
@@ -68,4 +72,73 @@ public class ParsedModuleTest {
         assertThat(pm.flatten()).extracting(ParsedModule::moduleName)
                 .containsExactlyInAnyOrder("main", "dep1", "dep2", "dep11", "dep12", "dep111", "dep121");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDiamondDependencies() throws IOException, CompilationErrorException {
+        final SourceFileLocation sources = SourceFileLocations.ofMap(Map.of(
+                "main", "module main uses dep1, dep2\n",
+                "dep1", "module dep1 uses base\n",
+                "dep2", "module dep2 uses base\n",
+                "base", "module base\n"));
+        final List<String> openedModules = Collections.synchronizedList(new ArrayList<>());
+        final ParsedModule pm = ParsedModule.parse("main", moduleName -> {
+            openedModules.add(moduleName);
+            return sources.openSource(moduleName);
+        });
+        assertThat(openedModules).containsExactlyInAnyOrder("main", "dep1", "dep2", "base");
+        final ParsedModule base1 = pm.dependencies().get(0).dependencies().get(0);
+        final ParsedModule base2 = pm.dependencies().get(1).dependencies().get(0);
+        assertThat(base1).isSameAs(base2);
+        assertThat(pm.flatten()).extracting(ParsedModule::moduleName)
+                .containsExactly("base", "dep2", "dep1", "main");
+    }
+
+    @Test
+    public void testSharedLoader() throws IOException, CompilationErrorException {
+        final SourceFileLocation sources = SourceFileLocations.ofMap(Map.of(
+                "main1", "module main1 uses base\n",
+                "main2", "module main2 uses base\n",
+                "base", "module base\n"));
+        final ModuleLoader loader = new ModuleLoader(sources);
+        final ParsedModule pm1 = loader.load("main1");
+        final ParsedModule pm2 = loader.load("main2");
+        assertThat(pm1.dependencies().get(0)).isSameAs(pm2.dependencies().get(0));
+    }
+
+    @Test
+    public void testMissingDependency() {
+        final SourceFileLocation sources = SourceFileLocations.ofMap(Map.of(
+                "main", "module main uses dep\n"));
+        assertThatThrownBy(() -> ParsedModule.parse("main", sources))
+                .isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    public void testMissingDependencyIsReportedBeforeSyntaxErrors() {
+        final SourceFileLocation sources = SourceFileLocations.ofMap(Map.of(
+                "main", "module main uses dep\nfn main( {\n"));
+        assertThatThrownBy(() -> ParsedModule.parse("main", sources))
+                .isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    public void testModuleNameMismatch() {
+        final SourceFileLocation sources = SourceFileLocations.ofMap(Map.of(
+                "main", "module main uses dep\n",
+                "dep", "module other\n"));
+        assertThatThrownBy(() -> ParsedModule.parse("main", sources))
+                .isInstanceOf(CompilationErrorException.class)
+                .hasMessageContaining("module name 'other' does not match file name 'dep'");
+    }
+
+    @Test
+    public void testMultiLineUsesClause() throws IOException, CompilationErrorException {
+        final SourceFileLocation sources = SourceFileLocations.ofMap(Map.of(
+                "main", "module main uses\n    dep1,\n    dep2\n",
+                "dep1", "module dep1\n",
+                "dep2", "module dep2\n"));
+        final ParsedModule pm = ParsedModule.parse("main", sources);
+        assertThat(pm.dependencies()).extracting(ParsedModule::moduleName)
+                .containsExactly("dep1", "dep2");
+    }
+}
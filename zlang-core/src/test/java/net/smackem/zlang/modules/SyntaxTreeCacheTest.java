@@ -0,0 +1,57 @@
+package net.smackem.zlang.modules;
+
+import net.smackem.zlang.lang.CompilationErrorException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SyntaxTreeCacheTest {
+    @Test
+    public void testUnchangedSourceIsNotParsedAgain() throws IOException, CompilationErrorException {
+        final SyntaxTreeCache cache = new SyntaxTreeCache(16);
+        final SourceFileLocation sources = SourceFileLocations.ofMap(Map.of(
+                "main", "module main uses dep\n",
+                "dep", "module dep\n"));
+        final ParsedModule pm1 = new ModuleLoader(sources, ForkJoinPool.commonPool(), cache).load("main");
+        assertThat(cache.missCount()).isEqualTo(2);
+        assertThat(cache.hitCount()).isEqualTo(0);
+        final ParsedModule pm2 = new ModuleLoader(sources, ForkJoinPool.commonPool(), cache).load("main");
+        assertThat(cache.missCount()).isEqualTo(2);
+        assertThat(cache.hitCount()).isEqualTo(2);
+        assertThat(pm2).isNotSameAs(pm1);
+        assertThat(pm2.ast()).isSameAs(pm1.ast());
+        assertThat(pm2.dependencies().get(0).ast()).isSameAs(pm1.dependencies().get(0).ast());
+    }
+
+    @Test
+    public void testChangedSourceIsParsedAgain() throws IOException, CompilationErrorException {
+        final SyntaxTreeCache cache = new SyntaxTreeCache(16);
+        final Map<String, String> sourceMap = new HashMap<>(Map.of(
+                "main", "module main uses dep\n",
+                "dep", "module dep\n"));
+        final SourceFileLocation sources = SourceFileLocations.ofMap(sourceMap);
+        final ParsedModule pm1 = new ModuleLoader(sources, ForkJoinPool.commonPool(), cache).load("main");
+        sourceMap.put("main", "module main uses dep\nlet x: int = 1\n");
+        final ParsedModule pm2 = new ModuleLoader(sources, ForkJoinPool.commonPool(), cache).load("main");
+        assertThat(cache.missCount()).isEqualTo(3);
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(pm2.ast()).isNotSameAs(pm1.ast());
+        assertThat(pm2.dependencies().get(0).ast()).isSameAs(pm1.dependencies().get(0).ast());
+    }
+
+    @Test
+    public void testEviction() throws IOException, CompilationErrorException {
+        final SyntaxTreeCache cache = new SyntaxTreeCache(1);
+        final SourceFileLocation sources = SourceFileLocations.ofMap(Map.of(
+                "main", "module main uses dep\n",
+                "dep", "module dep\n"));
+        new ModuleLoader(sources, ForkJoinPool.commonPool(), cache).load("main");
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.evictionCount()).isEqualTo(1);
+    }
+}
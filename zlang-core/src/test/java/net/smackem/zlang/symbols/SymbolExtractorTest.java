@@ -14,10 +14,12 @@ import org.junit.Test;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class SymbolExtractorTest {
 
@@ -321,6 +323,105 @@ public class SymbolExtractorTest {
         assertThat(errors).isEmpty();
     }
 
+    @Test
+    public void testMultiModuleDerivedTypesAreDeterministic() throws IOException, CompilationErrorException {
+        final String mainSource = """
+                module entry uses dep
+                let bytes: byte[] = nil
+                fn main() {
+                    var a: float list = nil
+                    var b: int[] = nil
+                }
+                """;
+        final String depSource = """
+                fn f() {
+                    var a: int list = nil
+                    var b: float[] = nil
+                }
+                let later: bool[] = nil
+                fn g(p: float list) {
+                    var a: byte list = nil
+                    var b: bool list = nil
+                }
+                """;
+        final SourceFileLocation loc = SourceFileLocations.ofMap(Map.of(
+                "entry", mainSource,
+                "dep", depSource));
+        final Collection<ParsedModule> modules = ParsedModule.parse("entry", loc).flatten();
+        List<String> firstTypeNames = null;
+        for (int i = 0; i < 20; i++) {
+            final GlobalScope globalScope = new GlobalScope();
+            final Collection<String> errors = new ArrayList<>();
+            SymbolExtractor.extractSymbols(modules, globalScope, errors);
+            assertThat(errors).isEmpty();
+            final List<String> typeNames = globalScope.symbols().stream()
+                    .filter(s -> (s instanceof ArrayType && s instanceof StringType == false) || s instanceof ListType)
+                    .map(Symbol::name)
+                    .toList();
+            if (firstTypeNames == null) {
+                firstTypeNames = typeNames;
+            }
+            assertThat(typeNames).isEqualTo(firstTypeNames);
+        }
+        // order of first use when walking the modules one after the other (dependencies first)
+        assertThat(firstTypeNames).containsExactly(
+                "Array<int>", "List<int>", "Array<float>", "Array<bool>", "List<float>",
+                "Array<byte>", "List<byte>", "List<bool>");
+    }
+
+    @Test
+    public void testResolveMembersOfManyModules() throws IOException, CompilationErrorException {
+        final int moduleCount = 150;
+        final Map<String, String> sources = new HashMap<>();
+        final List<String> dependencies = new ArrayList<>();
+        for (int i = 0; i < moduleCount; i++) {
+            final String name = "dep" + i;
+            sources.put(name, """
+                    let g%d: int = %d
+                    fn f%d() -> int {
+                        return g%d
+                    }
+                    """.formatted(i, i, i, i));
+            dependencies.add(name);
+        }
+        sources.put("entry", """
+                module entry uses %s
+                fn main() {
+                }
+                """.formatted(String.join(", ", dependencies)));
+        final Collection<ParsedModule> modules = ParsedModule.parse("entry", SourceFileLocations.ofMap(sources)).flatten();
+        final GlobalScope globalScope = new GlobalScope();
+        final Collection<String> errors = new ArrayList<>();
+        SymbolExtractor.extractSymbols(modules, globalScope, errors);
+        assertThat(errors).isEmpty();
+        for (int i = 0; i < moduleCount; i++) {
+            assertThat(globalScope.resolve("f" + i)).isInstanceOf(FunctionSymbol.class);
+            assertThat(globalScope.resolve("g" + i)).isInstanceOf(ConstantSymbol.class);
+        }
+        assertThat(globalScope.resolve("main")).isInstanceOf(FunctionSymbol.class);
+        assertThat(globalScope.resolve("int")).isSameAs(BuiltInType.INT.type());
+        assertThat(globalScope.resolve("f" + moduleCount)).isNull();
+    }
+
+    @Test
+    public void testDuplicateMemberOfDifferentModules() throws IOException, CompilationErrorException {
+        final SourceFileLocation loc = SourceFileLocations.ofMap(Map.of(
+                "entry", """
+                        module entry uses dep
+                        fn f() {
+                        }
+                        fn main() {
+                        }
+                        """,
+                "dep", """
+                        fn f() {
+                        }
+                        """));
+        final Collection<ParsedModule> modules = ParsedModule.parse("entry", loc).flatten();
+        assertThatThrownBy(() -> SymbolExtractor.extractSymbols(modules, new GlobalScope(), new ArrayList<>()))
+                .hasMessageContaining("duplicate definition of global symbol f");
+    }
+
     private static String symbolText(Collection<ParsedModule> modules, GlobalScope globalScope, Map<ParserRuleContext, Scope> scopes) {
         final StringBuilder buffer = new StringBuilder();
         final int indent;
@@ -38,6 +38,9 @@ typedef struct function_meta {
 typedef struct virtual_function_meta {
     /// the address in the const segment of the type that declares this function
     addr_t declaring_type;
+
+    /// the index of the implementing function in the itables of the implementing types
+    uint32_t itable_slot;
 } VirtualFunctionMeta;
 
 /**
@@ -14,6 +14,7 @@ void conv_ptr(Register *target, Type target_type, const Register *source);
 
 addr_t exec_call(Cpu *cpu, byte_t r_ret, byte_t r_first_arg, const FunctionMeta *func, addr_t pc);
 addr_t exec_virtual_call(Cpu *cpu, byte_t r_ret, byte_t r_first_arg, addr_t virtual_func_address, addr_t pc);
+addr_t exec_tail_call(Cpu *cpu, byte_t r_first_arg, const FunctionMeta *func);
 addr_t exec_return(Cpu *cpu);
 
 static void init_cpu(Cpu *cpu, const MemoryLayout *memory, const RuntimeConfig *config, const FunctionMeta *entry_point) {
@@ -65,7 +66,6 @@ static void base_assertions() {
     assert_equal(sizeof(FunctionMeta), FUNCTION_META_MIN_SIZE, "function_meta data_size mismatch");
     assert_equal(sizeof(TypeMeta), TYPE_META_MIN_SIZE, "type_meta data_size mismatch");
     assert_equal(sizeof(HeapEntry), HEAP_ENTRY_MIN_SIZE, "heap_entry data_size mismatch");
-    assert_equal(sizeof(VTableEntry), VTABLE_ENTRY_SIZE, "vtable_entry data_size mismatch");
 }
 
 static inline Register *reg(Cpu *cpu, int r) {
@@ -810,6 +810,140 @@ void execute(const byte_t *code,
             case OPC_Br:
                 pc = get_addr(instr->args, 0);
                 break;
+            case OPC_Brf_eq_i32:
+                r_left = get_byte(instr->args, 0);
+                r_right = get_byte(instr->args, 1);
+                if ((reg(&cpu, r_left)->i32 == reg(&cpu, r_right)->i32) == false) {
+                    pc = get_addr(instr->args, 2);
+                } else {
+                    size = 1 + 6;
+                }
+                break;
+            case OPC_Brf_eq_f64:
+                r_left = get_byte(instr->args, 0);
+                r_right = get_byte(instr->args, 1);
+                if ((reg(&cpu, r_left)->f64 == reg(&cpu, r_right)->f64) == false) {
+                    pc = get_addr(instr->args, 2);
+                } else {
+                    size = 1 + 6;
+                }
+                break;
+            case OPC_Brf_ne_i32:
+                r_left = get_byte(instr->args, 0);
+                r_right = get_byte(instr->args, 1);
+                if ((reg(&cpu, r_left)->i32 != reg(&cpu, r_right)->i32) == false) {
+                    pc = get_addr(instr->args, 2);
+                } else {
+                    size = 1 + 6;
+                }
+                break;
+            case OPC_Brf_ne_f64:
+                r_left = get_byte(instr->args, 0);
+                r_right = get_byte(instr->args, 1);
+                if ((reg(&cpu, r_left)->f64 != reg(&cpu, r_right)->f64) == false) {
+                    pc = get_addr(instr->args, 2);
+                } else {
+                    size = 1 + 6;
+                }
+                break;
+            case OPC_Brf_gt_i32:
+                r_left = get_byte(instr->args, 0);
+                r_right = get_byte(instr->args, 1);
+                if ((reg(&cpu, r_left)->i32 > reg(&cpu, r_right)->i32) == false) {
+                    pc = get_addr(instr->args, 2);
+                } else {
+                    size = 1 + 6;
+                }
+                break;
+            case OPC_Brf_gt_f64:
+                r_left = get_byte(instr->args, 0);
+                r_right = get_byte(instr->args, 1);
+                if ((reg(&cpu, r_left)->f64 > reg(&cpu, r_right)->f64) == false) {
+                    pc = get_addr(instr->args, 2);
+                } else {
+                    size = 1 + 6;
+                }
+                break;
+            case OPC_Brf_ge_i32:
+                r_left = get_byte(instr->args, 0);
+                r_right = get_byte(instr->args, 1);
+                if ((reg(&cpu, r_left)->i32 >= reg(&cpu, r_right)->i32) == false) {
+                    pc = get_addr(instr->args, 2);
+                } else {
+                    size = 1 + 6;
+                }
+                break;
+            case OPC_Brf_ge_f64:
+                r_left = get_byte(instr->args, 0);
+                r_right = get_byte(instr->args, 1);
+                if ((reg(&cpu, r_left)->f64 >= reg(&cpu, r_right)->f64) == false) {
+                    pc = get_addr(instr->args, 2);
+                } else {
+                    size = 1 + 6;
+                }
+                break;
+            case OPC_Brf_lt_i32:
+                r_left = get_byte(instr->args, 0);
+                r_right = get_byte(instr->args, 1);
+                if ((reg(&cpu, r_left)->i32 < reg(&cpu, r_right)->i32) == false) {
+                    pc = get_addr(instr->args, 2);
+                } else {
+                    size = 1 + 6;
+                }
+                break;
+            case OPC_Brf_lt_f64:
+                r_left = get_byte(instr->args, 0);
+                r_right = get_byte(instr->args, 1);
+                if ((reg(&cpu, r_left)->f64 < reg(&cpu, r_right)->f64) == false) {
+                    pc = get_addr(instr->args, 2);
+                } else {
+                    size = 1 + 6;
+                }
+                break;
+            case OPC_Brf_le_i32:
+                r_left = get_byte(instr->args, 0);
+                r_right = get_byte(instr->args, 1);
+                if ((reg(&cpu, r_left)->i32 <= reg(&cpu, r_right)->i32) == false) {
+                    pc = get_addr(instr->args, 2);
+                } else {
+                    size = 1 + 6;
+                }
+                break;
+            case OPC_Brf_le_f64:
+                r_left = get_byte(instr->args, 0);
+                r_right = get_byte(instr->args, 1);
+                if ((reg(&cpu, r_left)->f64 <= reg(&cpu, r_right)->f64) == false) {
+                    pc = get_addr(instr->args, 2);
+                } else {
+                    size = 1 + 6;
+                }
+                break;
+            case OPC_BrTable:
+                r_target = get_byte(instr->args, 0);
+                value = get_int(instr->args, 1);
+                if ((uint32_t) reg(&cpu, r_target)->i32 < (uint32_t) value) {
+                    pc = get_addr(instr->args, 5 + 4 * reg(&cpu, r_target)->i32);
+                } else {
+                    size = 1 + 5 + 4 * value;
+                }
+                break;
+            case OPC_Addi_i32:
+                r_target = get_byte(instr->args, 0);
+                r_left = get_byte(instr->args, 1);
+                reg(&cpu, r_target)->i32 = reg(&cpu, r_left)->i32 + get_int(instr->args, 2);
+                size = 1 + 6;
+                break;
+            case OPC_Loop_lt_i32:
+                r_target = get_byte(instr->args, 0);
+                r_left = get_byte(instr->args, 1);
+                r_right = get_byte(instr->args, 2);
+                reg(&cpu, r_target)->i32 += reg(&cpu, r_left)->i32;
+                if (reg(&cpu, r_target)->i32 < reg(&cpu, r_right)->i32) {
+                    pc = get_addr(instr->args, 3);
+                } else {
+                    size = 1 + 7;
+                }
+                break;
 
             // -------------------- function call
             //
@@ -828,6 +962,11 @@ void execute(const byte_t *code,
             case OPC_Ret:
                 pc = exec_return(&cpu);
                 break;
+            case OPC_TailCall:
+                r_left = get_byte(instr->args, 0);
+                addr = get_addr(instr->args, 1);
+                pc = exec_tail_call(&cpu, r_left, (FunctionMeta *) &cpu.const_segment[addr]);
+                break;
             case OPC_Invoke:
                 r_target = get_byte(instr->args, 0);
                 r_left = get_byte(instr->args, 1);
@@ -951,7 +1090,7 @@ void execute(const byte_t *code,
             case OPC_Eq_zero:
                 r_target = get_byte(instr->args, 0);
                 r_left = get_byte(instr->args, 1);
-                reg(&cpu, r_target)->i32 = reg(&cpu, r_left)->ptr == 0;
+                reg(&cpu, r_target)->i32 = reg(&cpu, r_left)->i32 == 0;
                 size = 1 + 2;
                 break;
 
@@ -990,6 +1129,17 @@ inline addr_t exec_virtual_call(Cpu *cpu, byte_t r_ret_val, byte_t r_first_arg,
     return exec_call(cpu, r_ret_val, r_first_arg, func, pc);
 }
 
+inline addr_t exec_tail_call(Cpu *cpu, byte_t r_first_arg, const FunctionMeta *func) {
+    StackFrame *top = cpu->call_stack.top;
+    assert(top != NULL);
+    // keep r_ret_val and ret_pc: func returns to the caller of the current function
+    top->meta = func;
+    memmove(&top->registers[1], &top->registers[r_first_arg], func->arg_count * sizeof(Register));
+    // the registers still hold the references released by the current function
+    zero_memory(&top->registers[1 + func->arg_count], func->local_count * sizeof(Register));
+    return func->pc;
+}
+
 inline addr_t exec_return(Cpu *cpu) {
     const StackFrame *old_top = pop_stack_frame(&cpu->call_stack);
     assert(old_top != NULL);
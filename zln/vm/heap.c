@@ -256,13 +256,16 @@ const FunctionMeta *get_impl_function(const Heap *heap, addr_t heap_addr, addr_t
     if (type == NULL) {
         return NULL;
     }
-    const VTableEntry *vte = (VTableEntry *) &type->data[type->vtable_offset];
-    for ( ; vte->virtual_function != 0; vte++) {
-        if (vte->virtual_function == virtual_function_addr) {
-            return (FunctionMeta *) &heap->const_segment[vte->impl_function];
-        }
+    const VirtualFunctionMeta *virtual_function = (VirtualFunctionMeta *) &heap->const_segment[virtual_function_addr];
+    const addr_t *itable = (addr_t *) &type->data[type->itable_offset];
+    if (virtual_function->itable_slot >= itable[0]) {
+        return NULL;
+    }
+    const addr_t impl_function_addr = itable[1 + virtual_function->itable_slot];
+    if (impl_function_addr == 0) {
+        return NULL;
     }
-    return NULL;
+    return (FunctionMeta *) &heap->const_segment[impl_function_addr];
 }
 
 bool check_type(const Heap *heap, addr_t heap_addr, addr_t type_addr) {
@@ -273,18 +276,12 @@ bool check_type(const Heap *heap, addr_t heap_addr, addr_t type_addr) {
     if ((entry->header & HEAP_ENTRY_TYPE_META_FLAG) == 0) {
         return false; // obj is not of a user type
     }
-    addr_t entry_type_addr = entry->header & ~HEAP_ENTRY_TYPE_META_FLAG;
-    if (entry_type_addr == type_addr) {
-        return true;
-    }
-    const TypeMeta *type = (TypeMeta *) &heap->const_segment[entry_type_addr];
-    const addr_t *ifc_ptr = (addr_t *) &type->data[type->implemented_interfaces_offset];
-    for ( ; *ifc_ptr != 0; ifc_ptr++) {
-        if (*ifc_ptr == type_addr) {
-            return true;
-        }
-    }
-    return false;
+    const TypeMeta *type = (TypeMeta *) &heap->const_segment[entry->header & ~HEAP_ENTRY_TYPE_META_FLAG];
+    const TypeMeta *checked_type = (TypeMeta *) &heap->const_segment[type_addr];
+    const uint32_t *type_set = (uint32_t *) &type->data[type->type_set_offset];
+    const uint32_t word_index = checked_type->type_id >> 5;
+    return word_index < type_set[0]
+        && (type_set[1 + word_index] & (1u << (checked_type->type_id & 31))) != 0;
 }
 
 void collect_heap_memory(Heap *heap) {
@@ -8,16 +8,6 @@
 #include "types.h"
 #include "callstack.h"
 
-typedef struct vtable_entry {
-    /// const address of a virtual function (VirtualFunctionMeta)
-    addr_t virtual_function;
-
-    /// const address of the implementing function (FunctionMeta)
-    addr_t impl_function;
-} VTableEntry;
-
-#define VTABLE_ENTRY_SIZE 8
-
 /**
  * Holds information about a type, stored in the const segment.
  * all offsets are relative to <c>TypeMeta.data</c>:
@@ -31,19 +21,29 @@ typedef struct type_meta {
     /// implemented interfaces is a zero-terminated list of <c>addr_t</c>s
     addr_t implemented_interfaces_offset;
 
-    /// data offset of the vtable.
-    /// the vtable is a zero-terminated list of <c>VTableEntry</c> structs. the last struct has all fields zeroed.
-    addr_t vtable_offset;
+    /// data offset of the itable.
+    /// the itable starts with the number of slots, followed by the const addresses of the implementing
+    /// functions (<c>FunctionMeta</c>), indexed by <c>VirtualFunctionMeta.itable_slot</c>.
+    /// unused slots are zero.
+    addr_t itable_offset;
 
     /// data offset of a zero-terminated list of field types.
     /// field types is a list of <c>Type</c>s, terminated by a <c>TYPE_Void</c>
     addr_t field_types_offset;
 
+    /// the dense id of the type, used as bit index into type sets
+    uint32_t type_id;
+
+    /// data offset of the type set.
+    /// the type set starts with the number of 32-bit words, followed by the words of a bit set that
+    /// contains the ids of the type itself and all implemented interfaces.
+    addr_t type_set_offset;
+
     /// the data chunk
     byte_t data[4];
 } TypeMeta;
 
-#define TYPE_META_MIN_SIZE 20
+#define TYPE_META_MIN_SIZE 28
 
 /**
  * Holds a heap entry (dynamically allocated, typed data chunk - e.g. an array, struct or union)
@@ -216,7 +216,7 @@ const TypeMeta *instance_type(const Heap * heap, const HeapEntry *entry);
 
 /**
  * implements dynamic dispatch by looking up the implementation function for virtual_function_addr
- * in the vtable of the instance at heap_addr.
+ * in the itable of the instance at heap_addr.
  *
  * @param heap
  *      This heap.
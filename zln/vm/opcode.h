@@ -311,7 +311,8 @@ enum op_code {
     /**
      * call_virtual(REG r_target, REG r_first_arg, INT const_addr):
      *      (look at VirtualFunctionMeta at const_addr)
-     *      (look up FunctionMeta address from vtable of TypeMeta at r_first_arg [which is self])
+     *      (look up FunctionMeta address in itable of TypeMeta at r_first_arg [which is self],
+     *       at the slot denoted by VirtualFunctionMeta.itable_slot)
      *      push stack_frame(#r_target, base_pc, pc, FunctionMeta)
      *      copy arguments: registers r_first_arg..r_first_arg + FunctionMeta.arg_count
      *              to new stack frame
@@ -371,7 +372,8 @@ enum op_code {
 
     /**
      * equals_zero(REG r_target, REG r_source):
-     *      r_target <- r_source == 0
+     *      r_target <- r_source.i32 == 0
+     * works for bool and reference values
      */
     OPC_Eq_zero,
 
@@ -380,6 +382,77 @@ enum op_code {
      *      collects heap memory.
      */
     OPC_Collect,
+
+    /**
+     * branch_if_false_equals(REG r_left, REG r_right, INT new_pc):
+     *      if not (r_left == r_right): pc <- new_pc
+     * fused Eq + Br_zero. the _i32 variants work for int, bool and byte values
+     */
+    OPC_Brf_eq_i32,
+    OPC_Brf_eq_f64,
+
+    /**
+     * branch_if_false_not_equals(REG r_left, REG r_right, INT new_pc):
+     *      if not (r_left != r_right): pc <- new_pc
+     */
+    OPC_Brf_ne_i32,
+    OPC_Brf_ne_f64,
+
+    /**
+     * branch_if_false_greater_than(REG r_left, REG r_right, INT new_pc):
+     *      if not (r_left > r_right): pc <- new_pc
+     */
+    OPC_Brf_gt_i32,
+    OPC_Brf_gt_f64,
+
+    /**
+     * branch_if_false_greater_equals(REG r_left, REG r_right, INT new_pc):
+     *      if not (r_left >= r_right): pc <- new_pc
+     */
+    OPC_Brf_ge_i32,
+    OPC_Brf_ge_f64,
+
+    /**
+     * branch_if_false_less_than(REG r_left, REG r_right, INT new_pc):
+     *      if not (r_left < r_right): pc <- new_pc
+     */
+    OPC_Brf_lt_i32,
+    OPC_Brf_lt_f64,
+
+    /**
+     * branch_if_false_less_equals(REG r_left, REG r_right, INT new_pc):
+     *      if not (r_left <= r_right): pc <- new_pc
+     */
+    OPC_Brf_le_i32,
+    OPC_Brf_le_f64,
+
+    /**
+     * add_immediate(REG r_target, REG r_source, INT value):
+     *      r_target <- r_source + value
+     */
+    OPC_Addi_i32,
+
+    /**
+     * loop_less_than(REG r_counter, REG r_step, REG r_limit, INT new_pc):
+     *      r_counter <- r_counter + r_step
+     *      if r_counter < r_limit: pc <- new_pc
+     * fused loop increment and back edge
+     */
+    OPC_Loop_lt_i32,
+
+    /**
+     * branch_table(REG r_index, INT count, INT new_pc_0, ... INT new_pc_count-1):
+     *      if 0 <= r_index < count: pc <- new_pc_{r_index}
+     */
+    OPC_BrTable,
+
+    /**
+     * tail_call(REG r_first_arg, INT const_addr):
+     *      moves arguments r_first_arg... to r1... of the current stack frame, pc <- function.pc
+     *      the current stack frame is reused by the called function, which returns to the caller
+     *      of the current function
+     */
+    OPC_TailCall,
 };
 
 typedef byte_t OpCode;
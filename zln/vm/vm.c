@@ -123,6 +123,22 @@ static const char *const opcode_names[] = {
     "RShift_u8",
     "Eq_zero",
     "Collect",
+    "Brf_eq_i32",
+    "Brf_eq_f64",
+    "Brf_ne_i32",
+    "Brf_ne_f64",
+    "Brf_gt_i32",
+    "Brf_gt_f64",
+    "Brf_ge_i32",
+    "Brf_ge_f64",
+    "Brf_lt_i32",
+    "Brf_lt_f64",
+    "Brf_le_i32",
+    "Brf_le_f64",
+    "Addi_i32",
+    "Loop_lt_i32",
+    "BrTable",
+    "TailCall",
 };
 
 static const char *const type_names[] = {
@@ -283,6 +299,54 @@ uint32_t print_instruction(FILE *f, const Instruction *instr) {
                     opcode_name(instr->opc),
                     get_int(instr->args, 0));
             return 1 + 4;
+        case OPC_Brf_eq_i32:
+        case OPC_Brf_eq_f64:
+        case OPC_Brf_ne_i32:
+        case OPC_Brf_ne_f64:
+        case OPC_Brf_gt_i32:
+        case OPC_Brf_gt_f64:
+        case OPC_Brf_ge_i32:
+        case OPC_Brf_ge_f64:
+        case OPC_Brf_lt_i32:
+        case OPC_Brf_lt_f64:
+        case OPC_Brf_le_i32:
+        case OPC_Brf_le_f64:
+            fprintf(f, "%12s r%d r%d %08x",
+                    opcode_name(instr->opc),
+                    get_byte(instr->args, 0),
+                    get_byte(instr->args, 1),
+                    get_addr(instr->args, 2));
+            return 1 + 6;
+        case OPC_Addi_i32:
+            fprintf(f, "%12s r%d r%d %d",
+                    opcode_name(instr->opc),
+                    get_byte(instr->args, 0),
+                    get_byte(instr->args, 1),
+                    get_int(instr->args, 2));
+            return 1 + 6;
+        case OPC_TailCall:
+            fprintf(f, "%12s r%d %08x",
+                    opcode_name(instr->opc),
+                    get_byte(instr->args, 0),
+                    get_addr(instr->args, 1));
+            return 1 + 5;
+        case OPC_BrTable:
+            fprintf(f, "%12s r%d %d",
+                    opcode_name(instr->opc),
+                    get_byte(instr->args, 0),
+                    get_int(instr->args, 1));
+            for (int32_t index = 0; index < get_int(instr->args, 1); index++) {
+                fprintf(f, " %08x", get_addr(instr->args, 5 + 4 * index));
+            }
+            return 1 + 5 + 4 * get_int(instr->args, 1);
+        case OPC_Loop_lt_i32:
+            fprintf(f, "%12s r%d r%d r%d %08x",
+                    opcode_name(instr->opc),
+                    get_byte(instr->args, 0),
+                    get_byte(instr->args, 1),
+                    get_byte(instr->args, 2),
+                    get_addr(instr->args, 3));
+            return 1 + 7;
         case OPC_Call:
         case OPC_Invoke:
         case OPC_CallVirt:
@@ -9,7 +9,7 @@
 #include "cpu.h"
 
 #define BYTE_CODE_MAJOR_VERSION 0
-#define BYTE_CODE_MINOR_VERSION 1
+#define BYTE_CODE_MINOR_VERSION 6
 
 /**
  * Gets the name of the given op code.